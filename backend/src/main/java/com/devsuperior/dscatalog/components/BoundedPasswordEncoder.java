@@ -0,0 +1,97 @@
+package com.devsuperior.dscatalog.components;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import com.devsuperior.dscatalog.services.exceptions.ServiceOverloadedException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * BCrypt executado num pool próprio e limitado: no máximo `threads` hashes em paralelo
+ * e `queueSize` esperando. Assim uma rajada de logins não ocupa toda a CPU e as
+ * threads do Tomcat continuam atendendo as leituras do catálogo.
+ * 
+ * Com a fila cheia (ou espera maior que timeoutMillis) lança ServiceOverloadedException,
+ * respondida como 503 com Retry-After. Métricas: executor.* (tag name=bcrypt) e
+ * bcrypt.hash (tag operation=encode|matches) com o tempo de cada hash
+ */
+public class BoundedPasswordEncoder extends BCryptPasswordEncoder {
+
+	private final ThreadPoolExecutor executor;
+	private final long timeoutMillis;
+	private final Timer encodeTimer;
+	private final Timer matchesTimer;
+	
+	public BoundedPasswordEncoder(int threads, int queueSize, long timeoutMillis, MeterRegistry registry) {
+		this.timeoutMillis = timeoutMillis;
+		
+		AtomicInteger count = new AtomicInteger();
+		executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueSize), 
+				runnable -> {
+					Thread thread = new Thread(runnable, "bcrypt-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		ExecutorServiceMetrics.monitor(registry, executor, "bcrypt");
+		
+		encodeTimer = Timer.builder("bcrypt.hash").tag("operation", "encode").register(registry);
+		matchesTimer = Timer.builder("bcrypt.hash").tag("operation", "matches").register(registry);
+	}
+	
+	@Override
+	public String encode(CharSequence rawPassword) {
+		return execute(() -> encodeTimer.recordCallable(() -> super.encode(rawPassword)));
+	}
+	
+	@Override
+	public boolean matches(CharSequence rawPassword, String encodedPassword) {
+		return execute(() -> matchesTimer.recordCallable(() -> super.matches(rawPassword, encodedPassword)));
+	}
+	
+	/** Destroy method inferido pelo Spring para o @Bean */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+	
+	<T> T execute(Callable<T> task) {
+		Future<T> future;
+		try {
+			future = executor.submit(task);
+		}
+		catch(RejectedExecutionException e) {
+			throw new ServiceOverloadedException("Authentication is temporarily overloaded");
+		}
+		
+		try {
+			return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+		catch(TimeoutException e) {
+			future.cancel(true);
+			throw new ServiceOverloadedException("Authentication is temporarily overloaded");
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			future.cancel(true);
+			throw new ServiceOverloadedException("Interrupted while waiting for password hashing");
+		}
+		catch(ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+}
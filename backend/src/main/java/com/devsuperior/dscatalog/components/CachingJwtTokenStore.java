@@ -0,0 +1,131 @@
+package com.devsuperior.dscatalog.components;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * JwtTokenStore que guarda os tokens já verificados (assinatura + JSON decodificados).
+ * No resource server cada requisição lê o token duas vezes (readAccessToken e
+ * readAuthentication); com o cache, um mesmo token repetido só é verificado uma vez.
+ * 
+ * A chave é o SHA-256 do token e a entrada expira no máximo no exp do próprio token
+ * (ou antes, em ttlSeconds). Tokens inválidos ou expirados nunca entram no cache.
+ * A revogação é conferida a cada leitura, mesmo com o token no cache
+ */
+public class CachingJwtTokenStore extends JwtTokenStore {
+
+	private final Cache<String, VerifiedToken> cache;
+	private final TokenRevocationList revocationList;
+	
+	public CachingJwtTokenStore(JwtAccessTokenConverter converter, TokenRevocationList revocationList, 
+			long maxSize, long ttlSeconds, MeterRegistry registry) {
+		super(converter);
+		this.revocationList = revocationList;
+		long maxTtlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+		cache = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfter(new Expiry<String, VerifiedToken>() {
+					@Override
+					public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+						long untilExp = TimeUnit.MILLISECONDS.toNanos(
+								value.accessToken.getExpiration().getTime() - System.currentTimeMillis());
+						return Math.max(0L, Math.min(maxTtlNanos, untilExp));
+					}
+					
+					@Override
+					public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+						return currentDuration;
+					}
+					
+					@Override
+					public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+						return currentDuration;
+					}
+				})
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(registry, cache, "verifiedToken");
+	}
+	
+	@Override
+	public OAuth2AccessToken readAccessToken(String tokenValue) {
+		return verified(tokenValue).accessToken;
+	}
+	
+	@Override
+	public OAuth2Authentication readAuthentication(OAuth2AccessToken token) {
+		return readAuthentication(token.getValue());
+	}
+	
+	/**
+	 * Cópia a cada leitura: o OAuth2AuthenticationManager altera details/authenticated
+	 * do objeto devolvido, que não pode ser compartilhado entre requisições
+	 */
+	@Override
+	public OAuth2Authentication readAuthentication(String token) {
+		OAuth2Authentication verified = verified(token).authentication;
+		return new OAuth2Authentication(verified.getOAuth2Request(), verified.getUserAuthentication());
+	}
+	
+	/** Descarta o token do cache (ex.: revogação) */
+	public void evict(String tokenValue) {
+		cache.invalidate(digest(tokenValue));
+	}
+	
+	private VerifiedToken verified(String tokenValue) {
+		String key = digest(tokenValue);
+		VerifiedToken verified = cache.getIfPresent(key);
+		if(verified == null) {
+			//lança InvalidTokenException se a assinatura ou o formato não conferirem
+			OAuth2AccessToken accessToken = super.readAccessToken(tokenValue);
+			verified = new VerifiedToken(accessToken, super.readAuthentication(tokenValue));
+			if(accessToken.getExpiration() != null && !accessToken.isExpired()) {
+				cache.put(key, verified);
+			}
+		}
+		if(revocationList.isRevoked(verified.jti)) {
+			throw new InvalidTokenException("Token was revoked");
+		}
+		return verified;
+	}
+	
+	private static String digest(String tokenValue) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(tokenValue.getBytes(StandardCharsets.UTF_8));
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+		}
+		catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private static class VerifiedToken {
+		
+		private final OAuth2AccessToken accessToken;
+		private final OAuth2Authentication authentication;
+		private final String jti;
+		
+		VerifiedToken(OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+			this.accessToken = accessToken;
+			this.authentication = authentication;
+			this.jti = (String) accessToken.getAdditionalInformation().get(AccessTokenConverter.JTI);
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package com.devsuperior.dscatalog.components;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.devsuperior.dscatalog.services.events.CategoryChangedEvent;
+import com.devsuperior.dscatalog.services.events.ProductChangedEvent;
+
+/**
+ * Versão das listagens de produtos, usada como ETag de /products.
+ * 
+ * Avança após o commit de qualquer escrita de produto ou categoria (a categoria
+ * aparece nas listagens com withCategories). O identificador da instância entra
+ * no ETag para que uma reinicialização nunca repita um ETag antigo
+ */
+@Component
+public class CatalogVersion {
+
+	private final String instanceId = UUID.randomUUID().toString().substring(0, 8);
+	private final AtomicLong version = new AtomicLong();
+	
+	/** Deve ser lido antes de montar a resposta: na pior das hipóteses o cliente revalida de novo */
+	public String currentETag() {
+		return Versioned.quote("catalog-" + instanceId + "-" + version.get());
+	}
+	
+	@Order(ResponseCache.SOURCE_INVALIDATION_ORDER)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onProductChanged(ProductChangedEvent event) {
+		version.incrementAndGet();
+	}
+	
+	@Order(ResponseCache.SOURCE_INVALIDATION_ORDER)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCategoryChanged(CategoryChangedEvent event) {
+		version.incrementAndGet();
+	}
+}
@@ -0,0 +1,199 @@
+package com.devsuperior.dscatalog.components;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.devsuperior.dscatalog.dto.CategoryDTO;
+import com.devsuperior.dscatalog.entities.Category;
+import com.devsuperior.dscatalog.repositories.CategoryRepository;
+import com.devsuperior.dscatalog.services.events.CategoryChangedEvent;
+
+/**
+ * Cópia imutável de todas as categorias, sempre em memória.
+ * 
+ * A leitura é só um get() na referência atômica: sem banco e sem lock.
+ * Após o commit de cada escrita de categoria uma nova cópia é montada e trocada
+ * inteira (copy-on-write). Cada cópia tem uma versão crescente e uma cópia
+ * montada antes nunca substitui uma montada depois, mesmo que termine por último
+ */
+@Component
+public class CategorySnapshot {
+
+	@Autowired
+	private CategoryRepository repository;
+	
+	private final AtomicLong versions = new AtomicLong();
+	private final AtomicReference<Snapshot> current = new AtomicReference<>();
+	
+	@EventListener(ApplicationReadyEvent.class)
+	public void refresh() {
+		long version = versions.incrementAndGet();
+		List<Category> entities = repository.findAll(Sort.by("id"));
+		
+		List<CategoryDTO> categories = entities.stream()
+				.map(cat -> new CategoryDTO(cat))
+				.collect(Collectors.toUnmodifiableList());
+		Map<Long, String> etags = entities.stream()
+				.collect(Collectors.toUnmodifiableMap(Category::getId, 
+						cat -> Versioned.etagOf(cat.getId(), cat.getVersion())));
+		
+		Snapshot next = new Snapshot(version, categories, etags);
+		current.accumulateAndGet(next, (cur, nw) -> cur == null || nw.version > cur.version ? nw : cur);
+	}
+	
+	/** Nova transação, pois a do evento já foi concluída */
+	@Order(ResponseCache.SOURCE_INVALIDATION_ORDER)
+	@TransactionalEventListener(fallbackExecution = true)
+	@Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+	public void onCategoryChanged(CategoryChangedEvent event) {
+		refresh();
+	}
+	
+	public Snapshot get() {
+		Snapshot snapshot = current.get();
+		if(snapshot == null) {
+			refresh();
+			snapshot = current.get();
+		}
+		return snapshot;
+	}
+	
+	public static class Snapshot {
+		
+		private static final Map<String, Comparator<CategoryDTO>> SORTABLE = Map.of(
+				"id", Comparator.comparing(CategoryDTO::getId),
+				"name", Comparator.comparing(CategoryDTO::getName, Comparator.nullsFirst(Comparator.naturalOrder())));
+		
+		private static final Comparator<CategoryDTO> KEYSET_ORDER = SORTABLE.get("name").thenComparing(SORTABLE.get("id"));
+		
+		private final long version;
+		private final List<CategoryDTO> categories;
+		/** Mesmas categorias na ordem (name, id) das listagens por cursor */
+		private final List<CategoryDTO> byNameAndId;
+		private final Map<Long, CategoryDTO> byId;
+		private final Map<Long, String> etags;
+		private final String etag;
+		
+		Snapshot(long version, List<CategoryDTO> categories, Map<Long, String> etags) {
+			this.version = version;
+			this.categories = categories;
+			this.byNameAndId = categories.stream().sorted(KEYSET_ORDER).collect(Collectors.toUnmodifiableList());
+			this.byId = categories.stream().collect(Collectors.toUnmodifiableMap(CategoryDTO::getId, Function.identity()));
+			this.etags = etags;
+			this.etag = contentETag(categories);
+		}
+		
+		public long getVersion() {
+			return version;
+		}
+		
+		/** ETag das listagens: muda se e somente se o conteúdo (id, nome) mudar */
+		public String getETag() {
+			return etag;
+		}
+		
+		/** ETag de uma categoria, ou null se ela não existir */
+		public String getETag(Long id) {
+			return etags.get(id);
+		}
+		
+		/** Todas as categorias, ordenadas por id (lista imutável; não alterar os DTOs) */
+		public List<CategoryDTO> getCategories() {
+			return categories;
+		}
+		
+		public CategoryDTO findById(Long id) {
+			return byId.get(id);
+		}
+		
+		/** Indica se a ordenação pedida pode ser feita em memória (apenas por id e name) */
+		public boolean canSort(Sort sort) {
+			return sort.stream().allMatch(order -> SORTABLE.containsKey(order.getProperty()));
+		}
+		
+		public Page<CategoryDTO> page(Pageable pageable) {
+			List<CategoryDTO> sorted = categories;
+			if(pageable.getSort().isSorted()) {
+				Comparator<CategoryDTO> comparator = null;
+				for(Sort.Order order : pageable.getSort()) {
+					Comparator<CategoryDTO> next = SORTABLE.get(order.getProperty());
+					next = order.isAscending() ? next : next.reversed();
+					comparator = comparator == null ? next : comparator.thenComparing(next);
+				}
+				sorted = categories.stream().sorted(comparator).collect(Collectors.toList());
+			}
+			
+			if(pageable.isUnpaged()) {
+				return new PageImpl<>(sorted);
+			}
+			
+			int from = (int) Math.min(pageable.getOffset(), sorted.size());
+			int to = Math.min(from + pageable.getPageSize(), sorted.size());
+			List<CategoryDTO> content = from < to ? sorted.subList(from, to) : Collections.emptyList();
+			return new PageImpl<>(content, pageable, sorted.size());
+		}
+		
+		/** Mesma página, sem o total: se existe a próxima sai do tamanho da lista */
+		public Slice<CategoryDTO> slice(Pageable pageable) {
+			Page<CategoryDTO> page = page(pageable);
+			return new SliceImpl<>(page.getContent(), pageable, page.hasNext());
+		}
+		
+		/**
+		 * Até limit categorias na ordem (name, id) depois da chave informada (do início se name
+		 * e id forem null), achando o ponto de partida por busca binária
+		 */
+		public List<CategoryDTO> keysetPage(String name, Long id, int limit) {
+			int from = 0;
+			if(id != null) {
+				CategoryDTO key = new CategoryDTO(id, name);
+				int pos = Collections.binarySearch(byNameAndId, key, KEYSET_ORDER);
+				from = pos >= 0 ? pos + 1 : -pos - 1;
+			}
+			int to = (int) Math.min((long) from + limit, byNameAndId.size());
+			return byNameAndId.subList(from, to);
+		}
+		
+		private static String contentETag(List<CategoryDTO> categories) {
+			try {
+				MessageDigest digest = MessageDigest.getInstance("SHA-256");
+				for(CategoryDTO cat : categories) {
+					digest.update((cat.getId() + ":" + cat.getName() + "\n").getBytes(StandardCharsets.UTF_8));
+				}
+				byte[] hash = digest.digest();
+				StringBuilder hex = new StringBuilder("categories-");
+				for(int i = 0; i < 12; i++) {
+					hex.append(String.format("%02x", hash[i]));
+				}
+				return Versioned.quote(hex.toString());
+			}
+			catch(NoSuchAlgorithmException ex) {
+				throw new IllegalStateException(ex);
+			}
+		}
+	}
+}
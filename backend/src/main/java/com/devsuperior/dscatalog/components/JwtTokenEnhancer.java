@@ -24,8 +24,12 @@ public class JwtTokenEnhancer implements TokenEnhancer {
 	
 	@Override
 	public OAuth2AccessToken enhance(OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
-		//getName retorna o nome do usuário no caso o email
-		User user = userRepository.findByEmail(authentication.getName());
+		//no grant password o principal já é o User carregado na autenticação: evita nova consulta
+		Object principal = authentication.getPrincipal();
+		User user = principal instanceof User 
+				? (User) principal
+				//getName retorna o nome do usuário no caso o email
+				: userRepository.findByEmail(authentication.getName());
 		
 		Map<String, Object> map = new HashMap<>();
 		map.put("userFirstName", user.getFirstName());
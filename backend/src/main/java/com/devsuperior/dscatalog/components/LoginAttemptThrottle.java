@@ -0,0 +1,139 @@
+package com.devsuperior.dscatalog.components;
+
+import java.time.Clock;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Contagem de logins que falharam, por e-mail e por IP, com backoff exponencial.
+ *
+ * Memória fixa: em vez de um mapa por chave (que um ataque com e-mails aleatórios faria
+ * crescer sem limite) as chaves caem em slots de duas tabelas de AtomicLong, cada uma com
+ * seu hash, e vale o menor dos dois contadores (count-min). Uma chave só é bloqueada por
+ * colisão se colidir com chaves atacadas nas duas tabelas; a semente aleatória impede
+ * escolher e-mails que colidam de propósito com o de outro usuário.
+ *
+ * Cada slot guarda, num único long atualizado por CAS, o segundo da última falha (32 bits
+ * altos) e a quantidade de falhas (32 bits baixos). Falhas mais antigas que a janela são
+ * esquecidas
+ */
+public class LoginAttemptThrottle {
+
+	private static final int ROWS = 2;
+	private static final int MAX_COUNT = 1 << 16;
+
+	private final AtomicLongArray[] rows = new AtomicLongArray[ROWS];
+	private final long[] seeds = new long[ROWS];
+	private final int mask;
+
+	private final int emailThreshold;
+	private final int ipThreshold;
+	private final long baseDelaySeconds;
+	private final long maxDelaySeconds;
+	private final long windowSeconds;
+	private final Clock clock;
+
+	/**
+	 * @param slots slots por tabela, arredondado para potência de 2
+	 * @param emailThreshold falhas seguidas de um e-mail antes do primeiro bloqueio
+	 * @param ipThreshold idem por IP (maior: vários usuários podem sair pelo mesmo NAT)
+	 */
+	public LoginAttemptThrottle(int slots, int emailThreshold, int ipThreshold,
+			long baseDelaySeconds, long maxDelaySeconds, long windowSeconds, Clock clock) {
+		int size = Integer.highestOneBit(Math.max(16, slots - 1) << 1);
+		for(int i = 0; i < ROWS; i++) {
+			rows[i] = new AtomicLongArray(size);
+			seeds[i] = ThreadLocalRandom.current().nextLong();
+		}
+		this.mask = size - 1;
+		this.emailThreshold = emailThreshold;
+		this.ipThreshold = ipThreshold;
+		this.baseDelaySeconds = baseDelaySeconds;
+		this.maxDelaySeconds = maxDelaySeconds;
+		this.windowSeconds = windowSeconds;
+		this.clock = clock;
+	}
+
+	/** Segundos até a próxima tentativa ser aceita; 0 quando liberado. ip pode ser null */
+	public long retryAfterSeconds(String email, String ip) {
+		long now = now();
+		long retryAfter = email == null ? 0L : retryAfter("email:" + email, emailThreshold, now);
+		if(ip != null) {
+			retryAfter = Math.max(retryAfter, retryAfter("ip:" + ip, ipThreshold, now));
+		}
+		return retryAfter;
+	}
+
+	public void recordFailure(String email, String ip) {
+		long now = now();
+		if(email != null) {
+			increment("email:" + email, now);
+		}
+		if(ip != null) {
+			increment("ip:" + ip, now);
+		}
+	}
+
+	/**
+	 * Login correto zera o e-mail (o IP não: senão o atacante intercalaria um login
+	 * válido próprio para zerar o contador do IP)
+	 */
+	public void recordSuccess(String email) {
+		if(email != null) {
+			for(int row = 0; row < ROWS; row++) {
+				rows[row].set(index("email:" + email, row), 0L);
+			}
+		}
+	}
+
+	private long retryAfter(String key, int threshold, long now) {
+		long retryAfter = Long.MAX_VALUE;
+		for(int row = 0; row < ROWS; row++) {
+			long slot = rows[row].get(index(key, row));
+			long last = slot >>> 32;
+			int count = (int) slot;
+			if(count < threshold || now - last > windowSeconds) {
+				return 0L;
+			}
+			//base, 2x base, 4x base... a partir do limite, até maxDelaySeconds
+			long delay = Math.min(maxDelaySeconds, baseDelaySeconds << Math.min(count - threshold, 30));
+			retryAfter = Math.min(retryAfter, Math.max(0L, last + delay - now));
+		}
+		return retryAfter;
+	}
+
+	private void increment(String key, long now) {
+		for(int row = 0; row < ROWS; row++) {
+			AtomicLongArray table = rows[row];
+			int index = index(key, row);
+			long current;
+			long updated;
+			do {
+				current = table.get(index);
+				int count = now - (current >>> 32) > windowSeconds ? 0 : (int) current;
+				updated = (now << 32) | Math.min(count + 1, MAX_COUNT);
+			} while(!table.compareAndSet(index, current, updated));
+		}
+	}
+
+	private int index(String key, int row) {
+		long hash = seeds[row];
+		for(int i = 0; i < key.length(); i++) {
+			hash = mix(hash ^ key.charAt(i));
+		}
+		return (int) hash & mask;
+	}
+
+	private static long mix(long value) {
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		value *= 0xc4ceb9fe1a85ec53L;
+		value ^= value >>> 33;
+		return value;
+	}
+
+	private long now() {
+		return clock.millis() / 1000L;
+	}
+}
@@ -0,0 +1,101 @@
+package com.devsuperior.dscatalog.components;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.devsuperior.dscatalog.dto.ProductDTO;
+import com.devsuperior.dscatalog.services.events.CategoryChangedEvent;
+import com.devsuperior.dscatalog.services.events.ProductChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Cache de leitura (read-through) do ProductDTO completo, já com as categorias,
+ * junto com o ETag da versão carregada.
+ * 
+ * Limitado por quantidade e por tempo de vida; as entradas são invalidadas
+ * após o commit das escritas de produto e de categoria (o nome da categoria
+ * vai embutido no DTO). Acertos, faltas e remoções ficam em /actuator/metrics
+ * (cache.gets, cache.evictions, cache.size com tag cache=productDetail).
+ * 
+ * Cargas fora do get(id, loader) usam generation()/putIfUnchanged: toda invalidação
+ * incrementa a geração antes de remover, e a entrada só é gravada se nenhuma
+ * invalidação aconteceu desde que a leitura no banco começou
+ */
+@Component
+public class ProductDetailCache {
+
+	private final Cache<Long, Versioned<ProductDTO>> cache;
+	private final AtomicLong generation = new AtomicLong();
+	
+	public ProductDetailCache(
+			@Value("${catalog.cache.product.max-size:10000}") long maxSize,
+			@Value("${catalog.cache.product.ttl-seconds:600}") long ttlSeconds,
+			MeterRegistry registry) {
+		
+		cache = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+				.recordStats()
+				.build();
+		
+		CaffeineCacheMetrics.monitor(registry, cache, "productDetail");
+	}
+	
+	/**
+	 * Retorna o DTO em cache ou carrega com o loader (uma única carga por id, 
+	 * mesmo com várias requisições simultâneas)
+	 */
+	public Versioned<ProductDTO> get(Long id, Function<Long, Versioned<ProductDTO>> loader) {
+		return cache.get(id, loader);
+	}
+	
+	/** Retorna o DTO somente se estiver em cache, sem carregar */
+	public Versioned<ProductDTO> getIfPresent(Long id) {
+		return cache.getIfPresent(id);
+	}
+	
+	/** Geração atual, a ser lida antes de consultar o banco */
+	public long generation() {
+		return generation.get();
+	}
+	
+	/**
+	 * Grava a entrada lida na geração informada, a menos que alguma invalidação tenha
+	 * acontecido desde então (a carga pode ter lido o estado anterior a um commit)
+	 */
+	public void putIfUnchanged(Long id, Versioned<ProductDTO> entry, long readGeneration) {
+		//a conferência roda com o slot do id travado: uma invalidação concorrente ou
+		//já mudou a geração, ou remove a entrada logo depois
+		cache.asMap().compute(id, (key, current) -> generation.get() == readGeneration ? entry : current);
+	}
+	
+	public void invalidate(Long id) {
+		generation.incrementAndGet();
+		cache.invalidate(id);
+	}
+	
+	@Order(ResponseCache.SOURCE_INVALIDATION_ORDER)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onProductChanged(ProductChangedEvent event) {
+		invalidate(event.getId());
+	}
+	
+	/** Remove somente os produtos que embutem a categoria alterada */
+	@Order(ResponseCache.SOURCE_INVALIDATION_ORDER)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCategoryChanged(CategoryChangedEvent event) {
+		generation.incrementAndGet();
+		cache.asMap().values().removeIf(entry -> 
+			entry.getValue().getCategories().stream().anyMatch(cat -> event.getId().equals(cat.getId())));
+	}
+}
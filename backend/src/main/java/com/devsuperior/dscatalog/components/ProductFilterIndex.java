@@ -0,0 +1,396 @@
+package com.devsuperior.dscatalog.components;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.devsuperior.dscatalog.dto.CategoryDTO;
+import com.devsuperior.dscatalog.dto.ProductDTO;
+import com.devsuperior.dscatalog.entities.Category;
+import com.devsuperior.dscatalog.entities.Product;
+import com.devsuperior.dscatalog.repositories.ProductRepository;
+import com.devsuperior.dscatalog.services.events.ProductChangedEvent;
+import com.devsuperior.dscatalog.services.filter.CategoryFilter;
+import com.devsuperior.dscatalog.services.filter.ProductFilter;
+
+/**
+ * Índice de filtros em memória com bitmaps compactados (Roaring) de ids de produto:
+ * um por categoria, um por faixa de preço e um por janela de datas.
+ * 
+ * Um filtro vira AND/OR de bitmaps. Nas faixas das pontas de um intervalo de preço
+ * ou data os produtos são conferidos um a um pelo valor exato; as faixas internas
+ * entram inteiras. Só a página pedida é carregada do banco depois.
+ * 
+ * É montado na subida da aplicação e atualizado após o commit de cada escrita do ProductService.
+ * O rebuild monta os bitmaps num índice novo fora do lock e o publica de uma vez; as escritas
+ * que chegam enquanto ele roda vão para o índice atual e são reaplicadas no novo antes da troca.
+ * Os ids de produto precisam caber em int (limite do RoaringBitmap)
+ */
+@Component
+public class ProductFilterIndex {
+
+	private static final Logger logger = LoggerFactory.getLogger(ProductFilterIndex.class);
+	
+	private static final int REBUILD_BATCH_SIZE = 1000;
+	
+	@Autowired
+	private ProductRepository repository;
+	
+	private final double priceBucketWidth;
+	private final long dateBucketSeconds;
+	
+	/** Guardado pelo lock, inclusive a referência (trocada no fim do rebuild) */
+	private Segment segment = new Segment();
+	/** Escritas recebidas durante um rebuild, reaplicadas no índice novo; null fora do rebuild */
+	private List<Consumer<Segment>> pending;
+	
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	public ProductFilterIndex(
+			@Value("${catalog.filter.price-bucket:100}") double priceBucketWidth,
+			@Value("${catalog.filter.date-bucket-days:7}") long dateBucketDays) {
+		this.priceBucketWidth = priceBucketWidth;
+		this.dateBucketSeconds = Duration.ofDays(dateBucketDays).getSeconds();
+	}
+	
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void rebuild() {
+		long start = System.currentTimeMillis();
+		lock.writeLock().lock();
+		try {
+			pending = new ArrayList<>();
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+		
+		Segment rebuilt = null;
+		int count = 0;
+		try {
+			rebuilt = load();
+			count = rebuilt.all.getCardinality();
+		}
+		finally {
+			lock.writeLock().lock();
+			try {
+				//se a carga falhou o índice atual continua valendo
+				if(rebuilt != null) {
+					for(Consumer<Segment> change : pending) {
+						change.accept(rebuilt);
+					}
+					segment = rebuilt;
+				}
+				pending = null;
+			}
+			finally {
+				lock.writeLock().unlock();
+			}
+		}
+		
+		logger.info("Product filter index built: {} products in {} ms", count, System.currentTimeMillis() - start);
+	}
+	
+	@Order(ResponseCache.SOURCE_INVALIDATION_ORDER)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onProductChanged(ProductChangedEvent event) {
+		if(event.getType() == ProductChangedEvent.Type.DELETED) {
+			remove(event.getId());
+		}
+		else {
+			ProductDTO dto = event.getProduct();
+			index(dto.getId(), dto.getPrice(), dto.getDate(), 
+					dto.getCategories().stream().map(CategoryDTO::getId).collect(Collectors.toList()));
+		}
+	}
+	
+	public void index(Long id, Double price, Instant date, Collection<Long> categoryIds) {
+		int key = Math.toIntExact(id);
+		Facts entry = new Facts(price, date, categoryIds.stream().mapToLong(Long::longValue).distinct().toArray());
+		apply(target -> target.index(key, entry));
+	}
+	
+	public void remove(Long id) {
+		int key = Math.toIntExact(id);
+		apply(target -> target.remove(key));
+	}
+	
+	/** Produtos que atendem ao filtro; o bitmap devolvido é uma cópia, livre para o chamador alterar */
+	public RoaringBitmap filter(ProductFilter filter) {
+		lock.readLock().lock();
+		try {
+			Segment current = segment;
+			RoaringBitmap result = current.all.clone();
+			
+			CategoryFilter categories = filter.getCategories();
+			if(!categories.isEmpty()) {
+				RoaringBitmap matching = categories.isMatchAll() ? current.all.clone() : new RoaringBitmap();
+				for(Long categoryId : categories.getCategoryIds()) {
+					RoaringBitmap members = current.byCategory.getOrDefault(categoryId, new RoaringBitmap());
+					if(categories.isMatchAll()) {
+						matching.and(members);
+					} else {
+						matching.or(members);
+					}
+				}
+				result.and(matching);
+			}
+			
+			if(filter.hasPriceRange()) {
+				result.and(range(current.byPriceBucket, 
+						filter.getMinPrice() == null ? null : priceBucket(filter.getMinPrice()),
+						filter.getMaxPrice() == null ? null : priceBucket(filter.getMaxPrice()),
+						key -> filter.matchesPrice(current.facts.get(key).price)));
+			}
+			
+			if(filter.hasDateRange()) {
+				result.and(range(current.byDateBucket, 
+						filter.getFrom() == null ? null : dateBucket(filter.getFrom()),
+						filter.getTo() == null ? null : dateBucket(filter.getTo()),
+						key -> filter.matchesDate(current.facts.get(key).date)));
+			}
+			
+			return result;
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Contagens das facetas sobre um conjunto de produtos: por categoria (interseção de bitmaps)
+	 * e por faixa de preço (uma passada pelos produtos do conjunto). bandBounds são os limites
+	 * inferiores das faixas em ordem crescente; a última faixa é aberta
+	 */
+	public FacetCounts facets(RoaringBitmap products, Collection<Long> categoryIds, double[] bandBounds) {
+		Map<Long, Long> byCategoryCount = new HashMap<>();
+		long[] byBand = new long[bandBounds.length];
+		
+		lock.readLock().lock();
+		try {
+			Segment current = segment;
+			for(Long categoryId : categoryIds) {
+				RoaringBitmap members = current.byCategory.get(categoryId);
+				byCategoryCount.put(categoryId, members == null ? 0L : RoaringBitmap.andCardinality(products, members));
+			}
+			products.forEach((int key) -> {
+				Facts entry = current.facts.get(key);
+				if(entry == null || entry.price == null) {
+					return;
+				}
+				int band = Arrays.binarySearch(bandBounds, entry.price);
+				//fora de um limite exato, binarySearch devolve -(ponto de inserção) - 1
+				band = band >= 0 ? band : -band - 2;
+				if(band >= 0) {
+					byBand[band]++;
+				}
+			});
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+		return new FacetCounts(byCategoryCount, byBand);
+	}
+	
+	/** Quantidade de produtos indexados */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return segment.all.getCardinality();
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/** Ids da página pedida em ordem crescente, sem percorrer as páginas anteriores */
+	public static List<Long> page(RoaringBitmap ids, int page, int size) {
+		List<Long> result = new ArrayList<>();
+		long offset = (long) page * size;
+		if(offset >= ids.getLongCardinality()) {
+			return result;
+		}
+		PeekableIntIterator it = ids.getIntIterator();
+		it.advanceIfNeeded(ids.select((int) offset));
+		while(it.hasNext() && result.size() < size) {
+			result.add((long) it.next());
+		}
+		return result;
+	}
+	
+	/**
+	 * União das faixas entre low e high (null = sem limite): as internas entram inteiras,
+	 * as das pontas passam pelo teste exato
+	 */
+	private static RoaringBitmap range(TreeMap<Long, RoaringBitmap> buckets, Long low, Long high, IntPredicate exact) {
+		NavigableMap<Long, RoaringBitmap> selected = buckets;
+		if(low != null) {
+			selected = selected.tailMap(low, true);
+		}
+		if(high != null) {
+			selected = selected.headMap(high, true);
+		}
+		
+		RoaringBitmap result = new RoaringBitmap();
+		for(Map.Entry<Long, RoaringBitmap> bucket : selected.entrySet()) {
+			if(bucket.getKey().equals(low) || bucket.getKey().equals(high)) {
+				bucket.getValue().forEach((int key) -> {
+					if(exact.test(key)) {
+						result.add(key);
+					}
+				});
+			}
+			else {
+				result.or(bucket.getValue());
+			}
+		}
+		return result;
+	}
+	
+	private static void removeFrom(Map<Long, RoaringBitmap> bitmaps, Long bucket, int key) {
+		RoaringBitmap bitmap = bitmaps.get(bucket);
+		bitmap.remove(key);
+		if(bitmap.isEmpty()) {
+			bitmaps.remove(bucket);
+		}
+	}
+	
+	/** Lê todos os produtos em lotes, por id, num índice novo ainda não publicado */
+	private Segment load() {
+		Segment loaded = new Segment();
+		long lastId = 0L;
+		List<Product> batch;
+		do {
+			batch = repository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+			if(!batch.isEmpty()) {
+				for(Product prod : repository.findProductsWithCategories(batch)) {
+					loaded.index(Math.toIntExact(prod.getId()), new Facts(prod.getPrice(), prod.getDate(), 
+							prod.getCategories().stream().mapToLong(Category::getId).distinct().toArray()));
+				}
+				lastId = batch.get(batch.size() - 1).getId();
+			}
+		} while(batch.size() == REBUILD_BATCH_SIZE);
+		return loaded;
+	}
+	
+	private void apply(Consumer<Segment> change) {
+		lock.writeLock().lock();
+		try {
+			change.accept(segment);
+			if(pending != null) {
+				pending.add(change);
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	private long priceBucket(double price) {
+		return (long) Math.floor(price / priceBucketWidth);
+	}
+	
+	private long dateBucket(Instant date) {
+		return Math.floorDiv(date.getEpochSecond(), dateBucketSeconds);
+	}
+	
+	public static class FacetCounts {
+		
+		private final Map<Long, Long> byCategory;
+		private final long[] byPriceBand;
+		
+		public FacetCounts(Map<Long, Long> byCategory, long[] byPriceBand) {
+			this.byCategory = byCategory;
+			this.byPriceBand = byPriceBand;
+		}
+		
+		public long getCategoryCount(Long categoryId) {
+			return byCategory.getOrDefault(categoryId, 0L);
+		}
+		
+		public long getPriceBandCount(int band) {
+			return byPriceBand[band];
+		}
+	}
+	
+	/** Conteúdo do índice: trocado por inteiro no rebuild */
+	private final class Segment {
+		
+		private final RoaringBitmap all = new RoaringBitmap();
+		private final Map<Long, RoaringBitmap> byCategory = new HashMap<>();
+		/** índice da faixa (preço / largura) -> produtos */
+		private final TreeMap<Long, RoaringBitmap> byPriceBucket = new TreeMap<>();
+		/** índice da janela (epoch segundos / largura) -> produtos */
+		private final TreeMap<Long, RoaringBitmap> byDateBucket = new TreeMap<>();
+		/** valores indexados de cada produto: filtro exato nas pontas e remoção */
+		private final Map<Integer, Facts> facts = new HashMap<>();
+		
+		private void index(int key, Facts entry) {
+			remove(key);
+			all.add(key);
+			for(long categoryId : entry.categoryIds) {
+				byCategory.computeIfAbsent(categoryId, c -> new RoaringBitmap()).add(key);
+			}
+			if(entry.price != null) {
+				byPriceBucket.computeIfAbsent(priceBucket(entry.price), b -> new RoaringBitmap()).add(key);
+			}
+			if(entry.date != null) {
+				byDateBucket.computeIfAbsent(dateBucket(entry.date), b -> new RoaringBitmap()).add(key);
+			}
+			facts.put(key, entry);
+		}
+		
+		private void remove(int key) {
+			Facts entry = facts.remove(key);
+			if(entry == null) {
+				return;
+			}
+			all.remove(key);
+			for(long categoryId : entry.categoryIds) {
+				removeFrom(byCategory, categoryId, key);
+			}
+			if(entry.price != null) {
+				removeFrom(byPriceBucket, priceBucket(entry.price), key);
+			}
+			if(entry.date != null) {
+				removeFrom(byDateBucket, dateBucket(entry.date), key);
+			}
+		}
+	}
+	
+	private static class Facts {
+		final Double price;
+		final Instant date;
+		final long[] categoryIds;
+		
+		Facts(Double price, Instant date, long[] categoryIds) {
+			this.price = price;
+			this.date = date;
+			this.categoryIds = categoryIds;
+		}
+	}
+}
@@ -0,0 +1,458 @@
+package com.devsuperior.dscatalog.components;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.devsuperior.dscatalog.entities.Product;
+import com.devsuperior.dscatalog.repositories.ProductRepository;
+import com.devsuperior.dscatalog.services.events.ProductChangedEvent;
+
+/**
+ * Índice invertido em memória sobre name e description dos produtos.
+ * 
+ * Cada termo aponta para os produtos que o contêm e o peso do termo no produto
+ * (ocorrências no nome valem NAME_BOOST vezes mais). A busca soma, para cada produto,
+ * peso saturado * idf dos termos da consulta, então produtos que contêm mais termos
+ * e termos mais raros aparecem primeiro.
+ * 
+ * As listas de cada termo são arrays paralelos de int (ids em ordem) e float (pesos),
+ * e a soma dos scores usa acumuladores primitivos reaproveitados entre consultas.
+ * 
+ * É montado na subida da aplicação e atualizado após o commit de cada escrita do ProductService.
+ * O rebuild monta um índice novo fora do lock e o publica de uma vez; as escritas que
+ * chegam enquanto ele roda vão para o índice atual e são reaplicadas no novo antes da troca
+ */
+@Component
+public class ProductSearchIndex {
+	
+	private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+	
+	private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+	
+	private static final float NAME_BOOST = 3f;
+	/** Saturação da frequência do termo (como o k1 do BM25) */
+	private static final float TF_SATURATION = 1.2f;
+	private static final int REBUILD_BATCH_SIZE = 1000;
+
+	@Autowired
+	private ProductRepository repository;
+	
+	/** Guardado pelo lock, inclusive a referência (trocada no fim do rebuild) */
+	private Segment segment = new Segment();
+	/** Escritas recebidas durante um rebuild, reaplicadas no índice novo; null fora do rebuild */
+	private List<Consumer<Segment>> pending;
+	
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	/** Acumuladores livres: no máximo um por consulta simultânea */
+	private final Queue<ScoreAccumulator> accumulators = new ConcurrentLinkedQueue<>();
+	
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void rebuild() {
+		long start = System.currentTimeMillis();
+		lock.writeLock().lock();
+		try {
+			pending = new ArrayList<>();
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+		
+		Segment rebuilt = null;
+		int count = 0;
+		try {
+			rebuilt = load();
+			count = rebuilt.documentTerms.size();
+		}
+		finally {
+			lock.writeLock().lock();
+			try {
+				//se a carga falhou o índice atual continua valendo
+				if(rebuilt != null) {
+					for(Consumer<Segment> change : pending) {
+						change.accept(rebuilt);
+					}
+					segment = rebuilt;
+				}
+				pending = null;
+			}
+			finally {
+				lock.writeLock().unlock();
+			}
+		}
+		
+		logger.info("Product search index built: {} products in {} ms", count, System.currentTimeMillis() - start);
+	}
+	
+	@Order(ResponseCache.SOURCE_INVALIDATION_ORDER)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onProductChanged(ProductChangedEvent event) {
+		if(event.getType() == ProductChangedEvent.Type.DELETED) {
+			remove(event.getId());
+		}
+		else {
+			index(event.getId(), event.getProduct().getName(), event.getProduct().getDescription());
+		}
+	}
+	
+	public void index(Long id, String name, String description) {
+		int doc = Math.toIntExact(id);
+		Map<String, Float> weights = weigh(name, description);
+		apply(target -> target.index(doc, weights));
+	}
+	
+	public void remove(Long id) {
+		int doc = Math.toIntExact(id);
+		apply(target -> target.remove(doc));
+	}
+	
+	/**
+	 * Retorna os ids da página pedida, em ordem de relevância (empate pelo menor id),
+	 * e o total de produtos que contêm ao menos um termo da consulta
+	 */
+	public SearchResult search(String query, int page, int size) {
+		Set<String> terms = new LinkedHashSet<>(tokenize(query));
+		if(terms.isEmpty()) {
+			return new SearchResult(Collections.emptyList(), 0);
+		}
+		
+		ScoreAccumulator scores = accumulators.poll();
+		if(scores == null) {
+			scores = new ScoreAccumulator();
+		}
+		try {
+			lock.readLock().lock();
+			try {
+				int totalDocs = Math.max(segment.documentTerms.size(), 1);
+				for(String term : terms) {
+					Postings docs = segment.postings.get(term);
+					if(docs == null) {
+						continue;
+					}
+					double df = docs.size;
+					float idf = (float) Math.log(1 + (totalDocs - df + 0.5) / (df + 0.5));
+					for(int i = 0; i < docs.size; i++) {
+						scores.add(docs.ids[i], docs.weights[i] * idf);
+					}
+				}
+			}
+			finally {
+				lock.readLock().unlock();
+			}
+			
+			return new SearchResult(scores.top(page, size), scores.count);
+		}
+		finally {
+			scores.reset();
+			accumulators.offer(scores);
+		}
+	}
+	
+	/** Todos os produtos que contêm ao menos um termo da consulta, sem ranking (usado nas facetas) */
+	public RoaringBitmap matching(String query) {
+		RoaringBitmap result = new RoaringBitmap();
+		lock.readLock().lock();
+		try {
+			for(String term : new LinkedHashSet<>(tokenize(query))) {
+				Postings docs = segment.postings.get(term);
+				if(docs != null) {
+					result.addN(docs.ids, 0, docs.size);
+				}
+			}
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+		return result;
+	}
+	
+	/** Quantidade de produtos indexados */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return segment.documentTerms.size();
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/** Minúsculas, sem acentos e quebrado em letras/dígitos: "Eletrônicos" -> "eletronicos" */
+	public static List<String> tokenize(String text) {
+		List<String> tokens = new ArrayList<>();
+		if(text == null) {
+			return tokens;
+		}
+		String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+		for(String token : SEPARATORS.split(folded.toLowerCase(Locale.ROOT))) {
+			if(!token.isEmpty()) {
+				tokens.add(token);
+			}
+		}
+		return tokens;
+	}
+	
+	/** Lê todos os produtos em lotes, por id, num índice novo ainda não publicado */
+	private Segment load() {
+		Segment loaded = new Segment();
+		long lastId = 0L;
+		List<Product> batch;
+		do {
+			batch = repository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+			for(Product prod : batch) {
+				loaded.index(Math.toIntExact(prod.getId()), weigh(prod.getName(), prod.getDescription()));
+				lastId = prod.getId();
+			}
+		} while(batch.size() == REBUILD_BATCH_SIZE);
+		return loaded;
+	}
+	
+	private void apply(Consumer<Segment> change) {
+		lock.writeLock().lock();
+		try {
+			change.accept(segment);
+			if(pending != null) {
+				pending.add(change);
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/** Peso saturado de cada termo do produto */
+	private static Map<String, Float> weigh(String name, String description) {
+		Map<String, Float> weights = new HashMap<>();
+		for(String term : tokenize(name)) {
+			weights.merge(term, NAME_BOOST, Float::sum);
+		}
+		for(String term : tokenize(description)) {
+			weights.merge(term, 1f, Float::sum);
+		}
+		weights.replaceAll((term, tf) -> tf * (TF_SATURATION + 1) / (tf + TF_SATURATION));
+		return weights;
+	}
+	
+	/** Conteúdo do índice: trocado por inteiro no rebuild */
+	private static final class Segment {
+		
+		/** termo -> produtos que o contêm, com o peso do termo em cada um */
+		private final Map<String, Postings> postings = new HashMap<>();
+		/** id do produto -> termos indexados, usado para remover o produto do índice */
+		private final Map<Integer, String[]> documentTerms = new HashMap<>();
+		
+		private void index(int id, Map<String, Float> weights) {
+			remove(id);
+			weights.forEach((term, weight) -> postings.computeIfAbsent(term, t -> new Postings()).put(id, weight));
+			documentTerms.put(id, weights.keySet().toArray(new String[0]));
+		}
+		
+		private void remove(int id) {
+			String[] terms = documentTerms.remove(id);
+			if(terms == null) {
+				return;
+			}
+			for(String term : terms) {
+				Postings docs = postings.get(term);
+				docs.remove(id);
+				if(docs.size == 0) {
+					postings.remove(term);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Produtos de um termo: ids em ordem crescente e pesos nas mesmas posições.
+	 * O rebuild lê em ordem de id, então lá cada put só acrescenta no fim
+	 */
+	private static final class Postings {
+		
+		private int[] ids = new int[4];
+		private float[] weights = new float[4];
+		private int size;
+		
+		private void put(int id, float weight) {
+			int pos = Arrays.binarySearch(ids, 0, size, id);
+			if(pos >= 0) {
+				weights[pos] = weight;
+				return;
+			}
+			pos = -pos - 1;
+			if(size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+				weights = Arrays.copyOf(weights, size * 2);
+			}
+			System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+			System.arraycopy(weights, pos, weights, pos + 1, size - pos);
+			ids[pos] = id;
+			weights[pos] = weight;
+			size++;
+		}
+		
+		private void remove(int id) {
+			int pos = Arrays.binarySearch(ids, 0, size, id);
+			if(pos < 0) {
+				return;
+			}
+			System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+			System.arraycopy(weights, pos + 1, weights, pos, size - pos - 1);
+			size--;
+		}
+	}
+	
+	/**
+	 * Scores de uma consulta indexados pelo id do produto (score 0 = não encontrado, já que
+	 * peso e idf são sempre positivos); touched guarda os ids tocados para o reset e o ranking
+	 * não varrerem o array inteiro
+	 */
+	private static final class ScoreAccumulator {
+		
+		private float[] scores = new float[0];
+		private int[] touched = new int[16];
+		private int count;
+		
+		private void add(int id, float score) {
+			if(id >= scores.length) {
+				scores = Arrays.copyOf(scores, Math.max(id + 1, scores.length * 2));
+			}
+			if(scores[id] == 0f) {
+				if(count == touched.length) {
+					touched = Arrays.copyOf(touched, count * 2);
+				}
+				touched[count++] = id;
+			}
+			scores[id] += score;
+		}
+		
+		/** Seleção parcial (heap de tamanho (page + 1) * size) em vez de ordenar todos os resultados */
+		private List<Long> top(int page, int size) {
+			List<Long> ids = new ArrayList<>();
+			long offset = (long) page * size;
+			if(offset >= count) {
+				return ids;
+			}
+			int limit = (int) Math.min(offset + size, count);
+			//heap com o pior dos melhores na raiz
+			int[] heap = new int[limit];
+			int heapSize = 0;
+			for(int i = 0; i < count; i++) {
+				int id = touched[i];
+				if(heapSize < limit) {
+					heap[heapSize++] = id;
+					siftUp(heap, heapSize - 1);
+				}
+				else if(limit > 0 && better(id, heap[0])) {
+					heap[0] = id;
+					siftDown(heap, heapSize);
+				}
+			}
+			
+			//esvazia a heap do pior para o melhor
+			int[] ranked = new int[heapSize];
+			for(int i = heapSize - 1; i >= 0; i--) {
+				ranked[i] = heap[0];
+				heap[0] = heap[--heapSize];
+				siftDown(heap, heapSize);
+			}
+			
+			for(int i = (int) offset; i < ranked.length; i++) {
+				ids.add((long) ranked[i]);
+			}
+			return ids;
+		}
+		
+		private void reset() {
+			for(int i = 0; i < count; i++) {
+				scores[touched[i]] = 0f;
+			}
+			count = 0;
+		}
+		
+		/** Maior score primeiro; empate pelo menor id */
+		private boolean better(int a, int b) {
+			return scores[a] > scores[b] || (scores[a] == scores[b] && a < b);
+		}
+		
+		private void siftUp(int[] heap, int pos) {
+			while(pos > 0) {
+				int parent = (pos - 1) / 2;
+				if(!better(heap[parent], heap[pos])) {
+					return;
+				}
+				swap(heap, parent, pos);
+				pos = parent;
+			}
+		}
+		
+		private void siftDown(int[] heap, int heapSize) {
+			int pos = 0;
+			while(true) {
+				int worst = pos;
+				int left = 2 * pos + 1;
+				int right = left + 1;
+				if(left < heapSize && better(heap[worst], heap[left])) {
+					worst = left;
+				}
+				if(right < heapSize && better(heap[worst], heap[right])) {
+					worst = right;
+				}
+				if(worst == pos) {
+					return;
+				}
+				swap(heap, pos, worst);
+				pos = worst;
+			}
+		}
+		
+		private static void swap(int[] heap, int i, int j) {
+			int tmp = heap[i];
+			heap[i] = heap[j];
+			heap[j] = tmp;
+		}
+	}
+	
+	public static class SearchResult {
+		
+		private final List<Long> ids;
+		private final long total;
+		
+		public SearchResult(List<Long> ids, long total) {
+			this.ids = ids;
+			this.total = total;
+		}
+		
+		public List<Long> getIds() {
+			return ids;
+		}
+		
+		public long getTotal() {
+			return total;
+		}
+	}
+}
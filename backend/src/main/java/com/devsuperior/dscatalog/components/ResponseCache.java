@@ -0,0 +1,175 @@
+package com.devsuperior.dscatalog.components;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.devsuperior.dscatalog.services.events.CategoryChangedEvent;
+import com.devsuperior.dscatalog.services.events.ProductChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Cache de respostas completas dos GETs anônimos (ResponseCacheFilter), chaveado pela
+ * URL normalizada. Cada entrada guarda as tags do header Surrogate-Key da resposta:
+ * "products"/"categories" nas listagens e "product-{id}"/"category-{id}" para cada
+ * produto ou categoria contido no corpo. Uma escrita remove só as entradas com as tags afetadas
+ */
+@Component
+public class ResponseCache {
+
+	public static final String SURROGATE_KEY = "Surrogate-Key";
+	
+	public static final String PRODUCTS = "products";
+	public static final String CATEGORIES = "categories";
+	
+	public static final String PRODUCT_TAG_PREFIX = "product-";
+	public static final String CATEGORY_TAG_PREFIX = "category-";
+	
+	/**
+	 * Ordem dos ouvintes pós-commit que invalidam o que as respostas leem (caches, ETag das
+	 * listagens, índices): rodam antes da purga, senão uma requisição no intervalo remontaria
+	 * a resposta com o dado antigo depois da purga e ela ficaria guardada até o TTL
+	 */
+	public static final int SOURCE_INVALIDATION_ORDER = Ordered.LOWEST_PRECEDENCE - 1;
+	public static final int PURGE_ORDER = Ordered.LOWEST_PRECEDENCE;
+	
+	private final Cache<String, CachedResponse> cache;
+	
+	/** Incrementado a cada purga: respostas montadas antes dela não são guardadas */
+	private final AtomicLong generation = new AtomicLong();
+	
+	public ResponseCache(
+			@Value("${catalog.response-cache.max-entries:5000}") long maxEntries,
+			@Value("${catalog.response-cache.ttl-seconds:60}") long ttlSeconds,
+			MeterRegistry registry) {
+		cache = Caffeine.newBuilder()
+				.maximumSize(maxEntries)
+				.expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(registry, cache, "responseCache");
+	}
+	
+	public static String productTag(Long id) {
+		return PRODUCT_TAG_PREFIX + id;
+	}
+	
+	public static String categoryTag(Long id) {
+		return CATEGORY_TAG_PREFIX + id;
+	}
+	
+	/** Sem credenciais: a resposta é a mesma para qualquer cliente */
+	public static boolean isAnonymous(HttpServletRequest request) {
+		return request.getHeader(HttpHeaders.AUTHORIZATION) == null 
+				&& request.getParameter("access_token") == null;
+	}
+	
+	/** Caminho + parâmetros em ordem alfabética (a ordem na URL não gera entradas diferentes) */
+	public static String key(HttpServletRequest request) {
+		StringBuilder key = new StringBuilder(request.getRequestURI());
+		Map<String, String[]> params = new TreeMap<>(request.getParameterMap());
+		char separator = '?';
+		for(Map.Entry<String, String[]> param : params.entrySet()) {
+			key.append(separator).append(param.getKey()).append('=').append(String.join(",", param.getValue()));
+			separator = '&';
+		}
+		return key.toString();
+	}
+	
+	public CachedResponse get(String key) {
+		return cache.getIfPresent(key);
+	}
+	
+	public long generation() {
+		return generation.get();
+	}
+	
+	/** Guarda a resposta somente se nenhuma purga aconteceu desde startGeneration */
+	public void put(String key, CachedResponse response, long startGeneration) {
+		if(generation.get() != startGeneration) {
+			return;
+		}
+		cache.put(key, response);
+		//uma purga entre a verificação e o put já pode ter varrido o cache
+		if(generation.get() != startGeneration) {
+			cache.invalidate(key);
+		}
+	}
+	
+	public void purge(Collection<String> tags) {
+		generation.incrementAndGet();
+		cache.asMap().values().removeIf(entry -> !Collections.disjoint(entry.getTags(), tags));
+	}
+	
+	/** Listagens podem mudar com qualquer escrita de produto; o detalhe, só com a do próprio produto */
+	@Order(PURGE_ORDER)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onProductChanged(ProductChangedEvent event) {
+		purge(List.of(PRODUCTS, productTag(event.getId())));
+	}
+	
+	@Order(PURGE_ORDER)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCategoryChanged(CategoryChangedEvent event) {
+		purge(List.of(CATEGORIES, categoryTag(event.getId())));
+	}
+	
+	public static class CachedResponse {
+		
+		private final byte[] body;
+		/** corpo já comprimido (null quando pequeno demais para compensar) */
+		private final byte[] gzippedBody;
+		private final String contentType;
+		private final Map<String, List<String>> headers;
+		private final Set<String> tags;
+		
+		public CachedResponse(byte[] body, byte[] gzippedBody, String contentType, 
+				Map<String, List<String>> headers, String surrogateKey) {
+			this.body = body;
+			this.gzippedBody = gzippedBody;
+			this.contentType = contentType;
+			this.headers = headers;
+			this.tags = new HashSet<>(Arrays.asList(surrogateKey.trim().split("\\s+")));
+		}
+
+		public byte[] getBody() {
+			return body;
+		}
+
+		public byte[] getGzippedBody() {
+			return gzippedBody;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		public Map<String, List<String>> getHeaders() {
+			return headers;
+		}
+
+		public Set<String> getTags() {
+			return tags;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.devsuperior.dscatalog.components;
+
+import java.util.Locale;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.devsuperior.dscatalog.services.exceptions.LoginThrottledException;
+
+/**
+ * DaoAuthenticationProvider que consulta o LoginAttemptThrottle antes de buscar o usuário
+ * e de rodar o BCrypt: e-mail ou IP bloqueado falha na hora com LoginThrottledException.
+ * Credencial errada (inclusive e-mail inexistente) conta como falha
+ */
+public class ThrottledAuthenticationProvider extends DaoAuthenticationProvider {
+
+	private final LoginAttemptThrottle throttle;
+	
+	public ThrottledAuthenticationProvider(LoginAttemptThrottle throttle) {
+		this.throttle = throttle;
+	}
+	
+	@Override
+	public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+		String email = normalize(authentication.getName());
+		String ip = clientIp();
+		
+		long retryAfter = throttle.retryAfterSeconds(email, ip);
+		if(retryAfter > 0) {
+			throw new LoginThrottledException(retryAfter);
+		}
+		
+		try {
+			Authentication result = super.authenticate(authentication);
+			throttle.recordSuccess(email);
+			return result;
+		}
+		catch(BadCredentialsException e) {
+			throttle.recordFailure(email, ip);
+			throw e;
+		}
+	}
+	
+	public static String normalize(String email) {
+		return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+	}
+	
+	/**
+	 * No grant password os details são os parâmetros do pedido; o IP vem da requisição corrente.
+	 * Atrás de proxy o remoteAddr já é o do cliente (X-Forwarded-For aplicado pelo Tomcat,
+	 * ver server.forward-headers-strategy)
+	 */
+	private static String clientIp() {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if(attributes instanceof ServletRequestAttributes) {
+			HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+			return request.getRemoteAddr();
+		}
+		return null;
+	}
+}
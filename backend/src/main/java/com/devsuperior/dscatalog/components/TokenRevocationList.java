@@ -0,0 +1,134 @@
+package com.devsuperior.dscatalog.components;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lista em memória dos jti revogados, consultada em toda requisição autenticada.
+ *
+ * Um filtro de Bloom fica na frente do mapa exato: para quase todos os tokens (os não
+ * revogados) a resposta sai de algumas leituras de bits, sem lock; só um "talvez" do
+ * filtro (revogado ou falso positivo, ~1%) consulta o mapa. Cada jti guarda o exp do
+ * token e sai da lista em prune() quando ele vence, o que também reconstrói o filtro.
+ *
+ * Escritas (revogações e prune) são raras e serializadas; leituras não bloqueiam
+ */
+public class TokenRevocationList {
+
+	private final Map<String, Instant> revoked = new ConcurrentHashMap<>();
+	private final int expectedInsertions;
+	private final double falsePositiveRate;
+
+	private volatile BloomFilter filter;
+
+	public TokenRevocationList(int expectedInsertions, double falsePositiveRate) {
+		this.expectedInsertions = expectedInsertions;
+		this.falsePositiveRate = falsePositiveRate;
+		this.filter = new BloomFilter(expectedInsertions, falsePositiveRate);
+	}
+
+	public boolean isRevoked(String jti) {
+		return jti != null && filter.mightContain(jti) && revoked.containsKey(jti);
+	}
+
+	public synchronized void revoke(String jti, Instant expiresAt) {
+		if(revoked.put(jti, expiresAt) != null) {
+			return;
+		}
+		if(revoked.size() > filter.capacity) {
+			//passou da capacidade: a taxa de falso positivo subiria, reconstrói maior
+			rebuild();
+		}
+		else {
+			filter.put(jti);
+		}
+	}
+
+	/** Remove os jti cujo token já expirou; retorna quantos saíram */
+	public synchronized int prune(Instant now) {
+		int before = revoked.size();
+		revoked.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+		int removed = before - revoked.size();
+		if(removed > 0) {
+			rebuild();
+		}
+		return removed;
+	}
+
+	public int size() {
+		return revoked.size();
+	}
+
+	/** O novo filtro é montado à parte e publicado de uma vez: leituras concorrentes nunca veem um filtro pela metade */
+	private void rebuild() {
+		BloomFilter rebuilt = new BloomFilter(Math.max(expectedInsertions, revoked.size() * 2), falsePositiveRate);
+		revoked.keySet().forEach(rebuilt::put);
+		filter = rebuilt;
+	}
+
+	private static final class BloomFilter {
+
+		private final int capacity;
+		private final AtomicLongArray bits;
+		private final long numBits;
+		private final int numHashes;
+
+		private BloomFilter(int capacity, double falsePositiveRate) {
+			this.capacity = capacity;
+			//m = -n ln(p) / ln(2)^2 e k = m/n ln(2)
+			long m = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+			int words = (int) Math.max(1, (m + 63) / 64);
+			this.bits = new AtomicLongArray(words);
+			this.numBits = words * 64L;
+			this.numHashes = Math.max(1, (int) Math.round((double) numBits / capacity * Math.log(2)));
+		}
+
+		private void put(String value) {
+			long hash1 = hash(value);
+			long hash2 = mix(hash1);
+			for(int i = 0; i < numHashes; i++) {
+				long bit = Math.floorMod(hash1 + i * hash2, numBits);
+				int word = (int) (bit >>> 6);
+				long mask = 1L << bit;
+				long current;
+				do {
+					current = bits.get(word);
+				} while((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+			}
+		}
+
+		private boolean mightContain(String value) {
+			long hash1 = hash(value);
+			long hash2 = mix(hash1);
+			for(int i = 0; i < numHashes; i++) {
+				long bit = Math.floorMod(hash1 + i * hash2, numBits);
+				if((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/** FNV-1a de 64 bits; a segunda função do double hashing sai do mix desse valor */
+		private static long hash(String value) {
+			long hash = 0xcbf29ce484222325L;
+			for(byte b : value.getBytes(StandardCharsets.UTF_8)) {
+				hash ^= b;
+				hash *= 0x100000001b3L;
+			}
+			return hash;
+		}
+
+		private static long mix(long value) {
+			value ^= value >>> 33;
+			value *= 0xff51afd7ed558ccdL;
+			value ^= value >>> 33;
+			value *= 0xc4ceb9fe1a85ec53L;
+			value ^= value >>> 33;
+			return value | 1L;
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.devsuperior.dscatalog.components;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.devsuperior.dscatalog.services.events.UserChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Cache do usuário (com os perfis) por e-mail, usado pelo DaoAuthenticationProvider
+ * no login (/oauth/token). Evita uma consulta de usuário + perfis por login em rajadas
+ * de autenticação.
+ * 
+ * Vida curta e invalidação após o commit de alterações/exclusões de usuário.
+ * Se a senha informada não conferir com a do cache, o próprio DaoAuthenticationProvider
+ * recarrega do banco antes de recusar, então uma troca de senha não bloqueia o login
+ */
+@Component
+public class UserDetailsCache implements UserCache {
+
+	private final Cache<String, UserDetails> cache;
+	
+	public UserDetailsCache(
+			@Value("${catalog.cache.user.max-size:10000}") long maxSize,
+			@Value("${catalog.cache.user.ttl-seconds:60}") long ttlSeconds,
+			MeterRegistry registry) {
+		cache = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(registry, cache, "userDetails");
+	}
+	
+	@Override
+	public UserDetails getUserFromCache(String username) {
+		return cache.getIfPresent(username);
+	}
+
+	@Override
+	public void putUserInCache(UserDetails user) {
+		cache.put(user.getUsername(), user);
+	}
+
+	@Override
+	public void removeUserFromCache(String username) {
+		cache.invalidate(username);
+	}
+	
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onUserChanged(UserChangedEvent event) {
+		cache.invalidateAll(event.getEmails());
+	}
+}
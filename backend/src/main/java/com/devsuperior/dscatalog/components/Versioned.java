@@ -0,0 +1,71 @@
+package com.devsuperior.dscatalog.components;
+
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import com.devsuperior.dscatalog.entities.Category;
+import com.devsuperior.dscatalog.entities.Product;
+
+/**
+ * Valor acompanhado do ETag (forte) da versão que o gerou.
+ * Guardar os dois juntos permite responder um If-None-Match
+ * sem ir ao banco e sem serializar o corpo
+ */
+public class Versioned<T> {
+
+	private final T value;
+	private final String etag;
+	
+	public Versioned(T value, String etag) {
+		this.value = value;
+		this.etag = etag;
+	}
+	
+	public T getValue() {
+		return value;
+	}
+	
+	public String getETag() {
+		return etag;
+	}
+	
+	/** ETag a partir do id e da versão (@Version) da entidade */
+	public static String etagOf(Long id, Integer version) {
+		return quote(id + "-v" + version);
+	}
+	
+	/**
+	 * ETag do produto: a versão dele e a das categorias embutidas no ProductDTO.
+	 * Renomear uma categoria muda o corpo do produto sem mudar a versão do produto
+	 */
+	public static String etagOf(Product product) {
+		long hash = 17;
+		for(Category cat : product.getCategories().stream()
+				.sorted(Comparator.comparing(Category::getId)).collect(Collectors.toList())) {
+			hash = hash * 1_000_003 + cat.getId();
+			hash = hash * 1_000_003 + Objects.hashCode(cat.getVersion());
+		}
+		return quote(product.getId() + "-v" + product.getVersion() + "-c" + Long.toHexString(hash));
+	}
+	
+	/**
+	 * Comparação forte de If-Match: null (sem pré-condição) e "*" sempre conferem;
+	 * senão algum dos ETags da lista precisa ser igual ao atual. ETags fracos (W/) nunca conferem
+	 */
+	public static boolean matches(String ifMatch, String etag) {
+		if(ifMatch == null || ifMatch.trim().equals("*")) {
+			return true;
+		}
+		for(String candidate : ifMatch.split(",")) {
+			if(candidate.trim().equals(etag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	public static String quote(String tag) {
+		return "\"" + tag + "\"";
+	}
+}
@@ -1,11 +1,24 @@
 package com.devsuperior.dscatalog.config;
 
+import java.time.Clock;
+
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
-import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+
+import com.devsuperior.dscatalog.components.BoundedPasswordEncoder;
+import com.devsuperior.dscatalog.components.CachingJwtTokenStore;
+import com.devsuperior.dscatalog.components.LoginAttemptThrottle;
+import com.devsuperior.dscatalog.components.TokenRevocationList;
+import com.devsuperior.dscatalog.resources.exceptions.ServiceOverloadedFilter;
+import com.devsuperior.dscatalog.resources.security.LoginThrottleFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 public class AppConfig {
@@ -13,14 +26,81 @@ public class AppConfig {
 	@Value("${jwt.secret}")
 	private String jwtSecret;
 	
+	@Value("${catalog.password.threads:0}")
+	private int passwordThreads;
+	
+	@Value("${catalog.password.queue-size:64}")
+	private int passwordQueueSize;
+	
+	@Value("${catalog.password.timeout-ms:5000}")
+	private long passwordTimeoutMillis;
+	
+	@Value("${catalog.cache.token.max-size:10000}")
+	private long tokenCacheMaxSize;
+	
+	@Value("${catalog.cache.token.ttl-seconds:300}")
+	private long tokenCacheTtlSeconds;
+	
+	@Value("${catalog.login.throttle.slots:65536}")
+	private int loginThrottleSlots;
+	
+	@Value("${catalog.login.throttle.email-threshold:5}")
+	private int loginEmailThreshold;
+	
+	@Value("${catalog.login.throttle.ip-threshold:20}")
+	private int loginIpThreshold;
+	
+	@Value("${catalog.login.throttle.base-delay-seconds:1}")
+	private long loginBaseDelaySeconds;
+	
+	@Value("${catalog.login.throttle.max-delay-seconds:900}")
+	private long loginMaxDelaySeconds;
+	
+	@Value("${catalog.login.throttle.window-seconds:900}")
+	private long loginWindowSeconds;
+	
+	@Value("${catalog.revocation.expected-size:10000}")
+	private int revocationExpectedSize;
+	
+	@Value("${catalog.revocation.false-positive-rate:0.01}")
+	private double revocationFalsePositiveRate;
+	
 	/**
 	 * Bean
 	 * determina que essa instância será um componente gerenciado pelo spring, podendo ser
 	 * injetado via @Autowired
 	 */
 	@Bean 
-	public BCryptPasswordEncoder passwordEncoder() {
-		return new BCryptPasswordEncoder();
+	public BCryptPasswordEncoder passwordEncoder(MeterRegistry registry) {
+		//0 = metade dos processadores: sobra CPU para as leituras mesmo numa rajada de logins
+		int threads = passwordThreads > 0 ? passwordThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+		return new BoundedPasswordEncoder(threads, passwordQueueSize, passwordTimeoutMillis, registry);
+	}
+	
+	/** Traduz a sobrecarga do BCrypt em 503 também quando ela acontece dentro dos filtros de segurança */
+	@Bean
+	public FilterRegistrationBean<ServiceOverloadedFilter> serviceOverloadedFilter(ObjectMapper objectMapper) {
+		FilterRegistrationBean<ServiceOverloadedFilter> registration = 
+				new FilterRegistrationBean<>(new ServiceOverloadedFilter(objectMapper));
+		registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 20);
+		return registration;
+	}
+	
+	/** Falhas de login por e-mail e por IP, com backoff exponencial (ver LoginAttemptThrottle) */
+	@Bean
+	public LoginAttemptThrottle loginAttemptThrottle() {
+		return new LoginAttemptThrottle(loginThrottleSlots, loginEmailThreshold, loginIpThreshold, 
+				loginBaseDelaySeconds, loginMaxDelaySeconds, loginWindowSeconds, Clock.systemUTC());
+	}
+	
+	/** Recusa logins bloqueados antes da autenticação do client (BCrypt) nos filtros de segurança */
+	@Bean
+	public FilterRegistrationBean<LoginThrottleFilter> loginThrottleFilter(ObjectMapper objectMapper) {
+		FilterRegistrationBean<LoginThrottleFilter> registration = 
+				new FilterRegistrationBean<>(new LoginThrottleFilter(loginAttemptThrottle(), objectMapper));
+		registration.addUrlPatterns("/oauth/token");
+		registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 15);
+		return registration;
 	}
 	
 	/** Beans para token JWT */
@@ -31,8 +111,16 @@ public class AppConfig {
 		return tokenConverter;
 	}
 	
+	/** jti revogados em memória, carregados e sincronizados pelo TokenRevocationService */
+	@Bean
+	public TokenRevocationList tokenRevocationList() {
+		return new TokenRevocationList(revocationExpectedSize, revocationFalsePositiveRate);
+	}
+	
+	/** JwtTokenStore com cache dos tokens já verificados (ver CachingJwtTokenStore) */
 	@Bean
-	public JwtTokenStore tokenStore() {
-		return new JwtTokenStore(accessTokenConverter());
+	public CachingJwtTokenStore tokenStore(MeterRegistry registry) {
+		return new CachingJwtTokenStore(accessTokenConverter(), tokenRevocationList(), 
+				tokenCacheMaxSize, tokenCacheTtlSeconds, registry);
 	}
 }
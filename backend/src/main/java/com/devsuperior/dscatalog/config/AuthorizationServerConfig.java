@@ -5,18 +5,25 @@ import java.util.Arrays;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
 import org.springframework.security.oauth2.config.annotation.configurers.ClientDetailsServiceConfigurer;
 import org.springframework.security.oauth2.config.annotation.web.configuration.AuthorizationServerConfigurerAdapter;
 import org.springframework.security.oauth2.config.annotation.web.configuration.EnableAuthorizationServer;
 import org.springframework.security.oauth2.config.annotation.web.configurers.AuthorizationServerEndpointsConfigurer;
 import org.springframework.security.oauth2.config.annotation.web.configurers.AuthorizationServerSecurityConfigurer;
+import org.springframework.security.oauth2.provider.error.DefaultWebResponseExceptionTranslator;
 import org.springframework.security.oauth2.provider.token.TokenEnhancerChain;
 import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
 
 import com.devsuperior.dscatalog.components.JwtTokenEnhancer;
+import com.devsuperior.dscatalog.services.exceptions.LoginThrottledException;
+import com.devsuperior.dscatalog.services.exceptions.ServiceOverloadedException;
 
 @Configuration
 @EnableAuthorizationServer
@@ -46,6 +53,8 @@ public class AuthorizationServerConfig extends AuthorizationServerConfigurerAdap
 	@Autowired
 	private JwtTokenEnhancer tokenEnhancer;
 	
+	private final DefaultWebResponseExceptionTranslator defaultTranslator = new DefaultWebResponseExceptionTranslator();
+	
 	@Override
 	public void configure(AuthorizationServerSecurityConfigurer security) throws Exception {
 		security.tokenKeyAccess("permitAll()").checkTokenAccess("isAuthenticated()"); //nome dos métodos
@@ -71,7 +80,47 @@ public class AuthorizationServerConfig extends AuthorizationServerConfigurerAdap
 		endpoints.authenticationManager(authenticationManager)
 			.tokenStore(tokenStore)
 			.accessTokenConverter(accessTokenConverter)
-			.tokenEnhancer(chain);
+			.tokenEnhancer(chain)
+			.exceptionTranslator(this::translate);
+	}
+
+	/**
+	 * O TokenEndpoint responde qualquer exceção como 500; a sobrecarga do BCrypt
+	 * vira 503 "temporarily_unavailable" (código de erro do OAuth2) com Retry-After
+	 * e o login bloqueado por tentativas que falharam vira 429
+	 */
+	private ResponseEntity<OAuth2Exception> translate(Exception e) throws Exception {
+		ServiceOverloadedException overloaded = ServiceOverloadedException.findIn(e);
+		if(overloaded != null) {
+			return error(HttpStatus.SERVICE_UNAVAILABLE, "temporarily_unavailable", 
+					overloaded.getMessage(), ServiceOverloadedException.RETRY_AFTER_SECONDS);
+		}
+		LoginThrottledException throttled = LoginThrottledException.findIn(e);
+		if(throttled != null) {
+			return error(HttpStatus.TOO_MANY_REQUESTS, "too_many_requests", 
+					throttled.getMessage(), String.valueOf(throttled.getRetryAfterSeconds()));
+		}
+		return defaultTranslator.translate(e);
+	}
+	
+	private static ResponseEntity<OAuth2Exception> error(HttpStatus status, String errorCode, 
+			String message, String retryAfter) {
+		OAuth2Exception body = new OAuth2Exception(message) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			public String getOAuth2ErrorCode() {
+				return errorCode;
+			}
+			
+			@Override
+			public int getHttpErrorCode() {
+				return status.value();
+			}
+		};
+		return ResponseEntity.status(status)
+				.header(HttpHeaders.RETRY_AFTER, retryAfter)
+				.body(body);
 	}
 
 	
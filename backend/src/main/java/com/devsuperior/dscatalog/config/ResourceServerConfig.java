@@ -23,8 +23,10 @@ public class ResourceServerConfig extends ResourceServerConfigurerAdapter {
 	private JwtTokenStore tokenStore;
 	
 	private static final String[] PUBLIC = { "/oaut/token", "/h2-console/**" };
-	private static final String[] OPERATOR_OR_ADMIN = { "/products/**", "/categories/**" };
-	private static final String[] ADMIN = {"/users/**"};
+	private static final String[] OPERATOR_OR_ADMIN = { "/products/**", "/categories/**", "/catalog/**" };
+	/** Exportação completa segura uma conexão do pool até o download terminar: não é pública */
+	private static final String[] EXPORT = { "/products/export" };
+	private static final String[] ADMIN = {"/users/**", "/tokens/**", "/actuator/**"};
 	
 	@Override
 	public void configure(ResourceServerSecurityConfigurer resources) throws Exception {
@@ -41,8 +43,10 @@ public class ResourceServerConfig extends ResourceServerConfigurerAdapter {
 		
 		http.authorizeRequests()
 			.antMatchers(PUBLIC).permitAll()
+			.antMatchers(EXPORT).hasAnyRole("OPERATOR", "ADMIN")
 			.antMatchers(HttpMethod.GET, OPERATOR_OR_ADMIN).permitAll()
 			.antMatchers(OPERATOR_OR_ADMIN).hasAnyRole("OPERATOR", "ADMIN")
+			.antMatchers(HttpMethod.DELETE, "/tokens/current").authenticated() //logout
 			.antMatchers(ADMIN).hasRole("ADMIN")
 			.anyRequest().authenticated();
 	}
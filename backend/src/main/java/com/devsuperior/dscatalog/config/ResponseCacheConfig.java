@@ -0,0 +1,36 @@
+package com.devsuperior.dscatalog.config;
+
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.devsuperior.dscatalog.components.ResponseCache;
+import com.devsuperior.dscatalog.resources.cache.ResponseCacheFilter;
+
+@Configuration
+public class ResponseCacheConfig {
+
+	@Value("${catalog.response-cache.enabled:true}")
+	private boolean enabled;
+	
+	@Value("${catalog.response-cache.max-body-bytes:1048576}")
+	private int maxBodyBytes;
+	
+	/**
+	 * Registrado antes do filtro do Spring Security para que um acerto não passe pela autenticação.
+	 * A exportação fica de fora: é escrita em streaming e não pode ser acumulada em memória
+	 */
+	@Bean
+	public FilterRegistrationBean<ResponseCacheFilter> responseCacheFilter(ResponseCache cache) {
+		FilterRegistrationBean<ResponseCacheFilter> registration = new FilterRegistrationBean<>(
+				new ResponseCacheFilter(cache, maxBodyBytes, Set.of("/products/export")));
+		registration.addUrlPatterns("/products", "/products/*", "/categories", "/categories/*");
+		registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 10);
+		registration.setEnabled(enabled);
+		return registration;
+	}
+}
@@ -4,12 +4,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
+import com.devsuperior.dscatalog.components.LoginAttemptThrottle;
+import com.devsuperior.dscatalog.components.ThrottledAuthenticationProvider;
+import com.devsuperior.dscatalog.components.UserDetailsCache;
 import com.devsuperior.dscatalog.services.UserService;
 
 @Configuration
@@ -22,17 +26,30 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 	@Autowired
 	private UserService userService;
 	
+	@Autowired
+	private UserDetailsCache userCache;
+	
+	@Autowired
+	private LoginAttemptThrottle loginAttemptThrottle;
+	
 	@Override
 	public void configure(WebSecurity web) throws Exception {
 		/**Provisoriamente libera todos os endpoints */
 		//web.ignoring().antMatchers("/**");
-		//actuator = lib do Spring cloud utiliza para passar as requisições
-		web.ignoring().antMatchers("/actuator/**");
+		//actuator = lib do Spring cloud utiliza para passar as requisições; só o health
+		//fica fora da segurança, o restante (metrics) exige ADMIN no ResourceServerConfig
+		web.ignoring().antMatchers("/actuator/health", "/actuator/health/**");
 	}
 
 	@Override
 	protected void configure(AuthenticationManagerBuilder auth) throws Exception {
-		auth.userDetailsService(userService).passwordEncoder(passwordEncoder);
+		//mesmo provider que o auth.userDetailsService(..) criaria, mais o cache de usuários
+		//e o bloqueio de tentativas que falharam
+		DaoAuthenticationProvider provider = new ThrottledAuthenticationProvider(loginAttemptThrottle);
+		provider.setUserDetailsService(userService);
+		provider.setPasswordEncoder(passwordEncoder);
+		provider.setUserCache(userCache);
+		auth.authenticationProvider(provider);
 	}
 
 	@Override
@@ -0,0 +1,57 @@
+package com.devsuperior.dscatalog.dto;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import com.devsuperior.dscatalog.entities.CatalogChange;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+public class CatalogChangeDTO implements Serializable {
+
+	private static final long serialVersionUID = -3365940307254787105L;
+	
+	private Long sequence;
+	private String entity;
+	private Long id;
+	private String operation;
+	private Instant changedAt;
+	
+	/** JSON gravado no outbox, repassado sem desserializar; null nas exclusões */
+	@JsonRawValue
+	private String data;
+	
+	public CatalogChangeDTO() {}
+	
+	public CatalogChangeDTO(CatalogChange entity) {
+		this.sequence = entity.getId();
+		this.entity = entity.getEntityType().name().toLowerCase();
+		this.id = entity.getEntityId();
+		this.operation = entity.getOperation().name().toLowerCase();
+		this.changedAt = entity.getChangedAt();
+		this.data = entity.getPayload();
+	}
+
+	public Long getSequence() {
+		return sequence;
+	}
+
+	public String getEntity() {
+		return entity;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getOperation() {
+		return operation;
+	}
+
+	public Instant getChangedAt() {
+		return changedAt;
+	}
+
+	public String getData() {
+		return data;
+	}
+}
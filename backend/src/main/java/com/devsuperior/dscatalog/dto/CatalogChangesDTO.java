@@ -0,0 +1,37 @@
+package com.devsuperior.dscatalog.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Uma página do log de alterações. O cliente guarda next e pede
+ * /catalog/changes?since=next até hasMore ser false
+ */
+public class CatalogChangesDTO implements Serializable {
+
+	private static final long serialVersionUID = 7714237007826392914L;
+	
+	private List<CatalogChangeDTO> changes;
+	private Long next;
+	private boolean hasMore;
+	
+	public CatalogChangesDTO() {}
+
+	public CatalogChangesDTO(List<CatalogChangeDTO> changes, Long next, boolean hasMore) {
+		this.changes = changes;
+		this.next = next;
+		this.hasMore = hasMore;
+	}
+
+	public List<CatalogChangeDTO> getChanges() {
+		return changes;
+	}
+
+	public Long getNext() {
+		return next;
+	}
+
+	public boolean isHasMore() {
+		return hasMore;
+	}
+}
@@ -0,0 +1,61 @@
+package com.devsuperior.dscatalog.dto;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.devsuperior.dscatalog.services.pagination.KeysetCursor;
+
+/**
+ * Página de uma listagem por cursor: não informa total nem número da página,
+ * apenas o conteúdo e o cursor para a próxima página (null na última)
+ */
+public class CursorPageDTO<T> implements Serializable {
+
+	private static final long serialVersionUID = 4630931372385176024L;
+	
+	private List<T> content;
+	private int size;
+	private String nextCursor;
+	
+	public CursorPageDTO() {}
+	
+	public CursorPageDTO(List<T> content, int size, String nextCursor) {
+		this.content = content;
+		this.size = size;
+		this.nextCursor = nextCursor;
+	}
+	
+	/**
+	 * Monta a página a partir de uma consulta que buscou size + 1 linhas:
+	 * a linha excedente só indica que existe uma próxima página
+	 */
+	public static <E, D> CursorPageDTO<D> of(List<E> rows, int size, 
+			Function<E, KeysetCursor> cursorOf, Function<E, D> mapper) {
+		
+		boolean hasNext = rows.size() > size;
+		List<E> page = hasNext ? rows.subList(0, size) : rows;
+		
+		String next = hasNext ? cursorOf.apply(page.get(page.size() - 1)).encode() : null;
+		
+		return new CursorPageDTO<>(
+				page.stream().map(mapper).collect(Collectors.toList()), size, next);
+	}
+
+	public List<T> getContent() {
+		return content;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+	
+	public boolean isLast() {
+		return nextCursor == null;
+	}
+}
@@ -0,0 +1,32 @@
+package com.devsuperior.dscatalog.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resposta da busca de vários produtos por id: content na ordem pedida
+ * e em missing os ids que não existem (sem gerar erro)
+ */
+public class ProductBatchDTO implements Serializable {
+
+	private static final long serialVersionUID = 6390228427151861034L;
+
+	private List<ProductDTO> content = new ArrayList<>();
+	private List<Long> missing = new ArrayList<>();
+	
+	public ProductBatchDTO() {}
+	
+	public ProductBatchDTO(List<ProductDTO> content, List<Long> missing) {
+		this.content = content;
+		this.missing = missing;
+	}
+
+	public List<ProductDTO> getContent() {
+		return content;
+	}
+
+	public List<Long> getMissing() {
+		return missing;
+	}
+}
@@ -0,0 +1,92 @@
+package com.devsuperior.dscatalog.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Contagens de produtos do filtro atual por categoria e por faixa de preço */
+public class ProductFacetsDTO implements Serializable {
+
+	private static final long serialVersionUID = -2287036475110937456L;
+
+	private long total;
+	private List<CategoryFacet> categories = new ArrayList<>();
+	private List<PriceBandFacet> priceBands = new ArrayList<>();
+	
+	public ProductFacetsDTO() {}
+	
+	public ProductFacetsDTO(long total) {
+		this.total = total;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public List<CategoryFacet> getCategories() {
+		return categories;
+	}
+
+	public List<PriceBandFacet> getPriceBands() {
+		return priceBands;
+	}
+	
+	public static class CategoryFacet implements Serializable {
+
+		private static final long serialVersionUID = 8573346195904318120L;
+		
+		private Long id;
+		private String name;
+		private long count;
+		
+		public CategoryFacet() {}
+		
+		public CategoryFacet(Long id, String name, long count) {
+			this.id = id;
+			this.name = name;
+			this.count = count;
+		}
+
+		public Long getId() {
+			return id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getCount() {
+			return count;
+		}
+	}
+	
+	/** Faixa [min, max); max nulo na última faixa (sem limite superior) */
+	public static class PriceBandFacet implements Serializable {
+
+		private static final long serialVersionUID = -6671520918845315707L;
+		
+		private Double min;
+		private Double max;
+		private long count;
+		
+		public PriceBandFacet() {}
+		
+		public PriceBandFacet(Double min, Double max, long count) {
+			this.min = min;
+			this.max = max;
+			this.count = count;
+		}
+
+		public Double getMin() {
+			return min;
+		}
+
+		public Double getMax() {
+			return max;
+		}
+
+		public long getCount() {
+			return count;
+		}
+	}
+}
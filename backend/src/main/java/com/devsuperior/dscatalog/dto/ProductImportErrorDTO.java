@@ -0,0 +1,31 @@
+package com.devsuperior.dscatalog.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.devsuperior.dscatalog.resources.exceptions.FieldMessage;
+
+/** Erros de uma linha (posição no arquivo, começando em 1) da importação em lote */
+public class ProductImportErrorDTO implements Serializable {
+
+	private static final long serialVersionUID = -1904839327749418573L;
+
+	private long row;
+	private List<FieldMessage> errors = new ArrayList<>();
+	
+	public ProductImportErrorDTO() {}
+	
+	public ProductImportErrorDTO(long row, List<FieldMessage> errors) {
+		this.row = row;
+		this.errors = errors;
+	}
+
+	public long getRow() {
+		return row;
+	}
+
+	public List<FieldMessage> getErrors() {
+		return errors;
+	}
+}
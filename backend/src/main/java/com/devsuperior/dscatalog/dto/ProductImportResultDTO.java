@@ -0,0 +1,47 @@
+package com.devsuperior.dscatalog.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado da importação em lote. As linhas rejeitadas são sempre contadas,
+ * mas apenas as primeiras têm o detalhe em errors (limite configurável)
+ */
+public class ProductImportResultDTO implements Serializable {
+
+	private static final long serialVersionUID = 5183077019234551926L;
+
+	private long received;
+	private long imported;
+	private long rejected;
+	private List<ProductImportErrorDTO> errors = new ArrayList<>();
+
+	public long getReceived() {
+		return received;
+	}
+
+	public void setReceived(long received) {
+		this.received = received;
+	}
+
+	public long getImported() {
+		return imported;
+	}
+
+	public void setImported(long imported) {
+		this.imported = imported;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public void setRejected(long rejected) {
+		this.rejected = rejected;
+	}
+
+	public List<ProductImportErrorDTO> getErrors() {
+		return errors;
+	}
+}
@@ -0,0 +1,83 @@
+package com.devsuperior.dscatalog.entities;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Registro do log de alterações do catálogo (outbox), gravado na mesma transação
+ * da escrita do produto/categoria. O id é a sequência usada pelos clientes em
+ * /catalog/changes?since=, atribuída pelo CatalogChangeCounter (não por sequence)
+ */
+@Entity
+@Table(name = "tb_catalog_change")
+public class CatalogChange implements Serializable {
+
+	private static final long serialVersionUID = 2164513478810427377L;
+
+	public enum EntityType { PRODUCT, CATEGORY }
+	
+	public enum Operation { UPSERT, DELETE }
+	
+	@Id
+	private Long id;
+	
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 16)
+	private EntityType entityType;
+	
+	@Column(nullable = false)
+	private Long entityId;
+	
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 16)
+	private Operation operation;
+	
+	/** Estado completo em JSON no momento da escrita; null nas exclusões (tombstone) */
+	@Column(columnDefinition = "TEXT")
+	private String payload;
+	
+	@Column(columnDefinition = "TIMESTAMP WITHOUT TIME ZONE", nullable = false)
+	private Instant changedAt;
+	
+	public CatalogChange() {}
+
+	public CatalogChange(Long id, EntityType entityType, Long entityId, Operation operation, String payload) {
+		this.id = id;
+		this.entityType = entityType;
+		this.entityId = entityId;
+		this.operation = operation;
+		this.payload = payload;
+		this.changedAt = Instant.now();
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public EntityType getEntityType() {
+		return entityType;
+	}
+
+	public Long getEntityId() {
+		return entityId;
+	}
+
+	public Operation getOperation() {
+		return operation;
+	}
+
+	public String getPayload() {
+		return payload;
+	}
+
+	public Instant getChangedAt() {
+		return changedAt;
+	}
+}
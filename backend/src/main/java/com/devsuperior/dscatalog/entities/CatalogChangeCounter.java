@@ -0,0 +1,49 @@
+package com.devsuperior.dscatalog.entities;
+
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Linha única com a última sequência do log de alterações.
+ * 
+ * Quem grava no log trava esta linha (SELECT ... FOR UPDATE) até o commit, então as
+ * sequências ficam visíveis na ordem em que foram atribuídas, em qualquer instância:
+ * ninguém obtém uma sequência maior enquanto uma menor ainda não fez commit
+ */
+@Entity
+@Table(name = "tb_catalog_change_counter")
+public class CatalogChangeCounter implements Serializable {
+
+	private static final long serialVersionUID = -3170595218416672035L;
+	
+	public static final Integer ID = 1;
+	
+	@Id
+	private Integer id;
+	
+	@Column(nullable = false)
+	private Long lastSequence;
+	
+	public CatalogChangeCounter() {}
+	
+	public CatalogChangeCounter(Integer id, Long lastSequence) {
+		this.id = id;
+		this.lastSequence = lastSequence;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+	
+	public Long getLastSequence() {
+		return lastSequence;
+	}
+	
+	public Long next() {
+		return ++lastSequence;
+	}
+}
@@ -10,19 +10,23 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.ManyToMany;
 import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Entity
-@Table(name = "tb_category")
+@Table(name = "tb_category", indexes = @Index(name = "idx_category_name_id", columnList = "name, id"))
 public class Category implements Serializable {
 	
 	private static final long serialVersionUID = 667922986525075901L;
 	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_category")
+	@SequenceGenerator(name = "seq_category", sequenceName = "seq_category", allocationSize = 50)
 	private Long id;
 	private String name;
 	
@@ -32,6 +36,11 @@ public class Category implements Serializable {
 	@Column(columnDefinition = "TIMESTAMP WITHOUT TIME ZONE")
 	private Instant updatedAt;
 	
+	/** Controle de concorrência otimista; o default 0 cobre linhas inseridas fora do JPA (import.sql, importação) */
+	@Version
+	@Column(columnDefinition = "INTEGER DEFAULT 0 NOT NULL")
+	private Integer version;
+	
 	@ManyToMany(mappedBy = "categories") //mapeamento já feito no atributo categories em product 
 	private Set<Product> products = new HashSet<>();
 
@@ -71,6 +80,10 @@ public class Category implements Serializable {
 	public Instant getUpdatedAt() {
 		return updatedAt;
 	}
+
+	public Integer getVersion() {
+		return version;
+	}
 	
 	@PrePersist
 	public void prePersist() {
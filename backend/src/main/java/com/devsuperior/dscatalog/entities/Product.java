@@ -10,19 +10,32 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.DynamicUpdate;
 
 @Entity
-@Table(name = "tb_product")
+@DynamicUpdate //UPDATE só com as colunas alteradas (PATCH de preço não regrava a descrição)
+@Table(name = "tb_product", indexes = @Index(name = "idx_product_name_id", columnList = "name, id"))
 public class Product implements Serializable {
 
 	private static final long serialVersionUID = -8098169994206334684L;
 	
+	/** Sequence dos ids; cada nextval reserva um bloco de ID_ALLOCATION_SIZE ids (pooled-lo) */
+	public static final String ID_SEQUENCE = "seq_product";
+	public static final int ID_ALLOCATION_SIZE = 50;
+	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+	@SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
 	private Long id;
 	private String name;
 	
@@ -35,11 +48,24 @@ public class Product implements Serializable {
 	@Column(columnDefinition = "TIMESTAMP WITHOUT TIME ZONE")
 	private Instant date;
 	
+	@Column(columnDefinition = "TIMESTAMP WITHOUT TIME ZONE")
+	private Instant createdAt;
+	
+	@Column(columnDefinition = "TIMESTAMP WITHOUT TIME ZONE")
+	private Instant updatedAt;
+	
+	/** Controle de concorrência otimista; o default 0 cobre linhas inseridas fora do JPA (import.sql, importação) */
+	@Version
+	@Column(columnDefinition = "INTEGER DEFAULT 0 NOT NULL")
+	private Integer version;
+	
 	@ManyToMany
 	@JoinTable(
 			name = "tb_product_category",
 			joinColumns = @JoinColumn(name = "product_id"),
-			inverseJoinColumns = @JoinColumn(name = "category_id")
+			inverseJoinColumns = @JoinColumn(name = "category_id"),
+			//a PK é (product_id, category_id); este índice atende o filtro por categoria
+			indexes = @Index(name = "idx_product_category_category_product", columnList = "category_id, product_id")
 			)
 	private Set<Category> categories = new HashSet<>();
 	
@@ -96,6 +122,34 @@ public class Product implements Serializable {
 	public Set<Category> getCategories() {
 		return categories;
 	}
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+	public Instant getUpdatedAt() {
+		return updatedAt;
+	}
+
+	public Integer getVersion() {
+		return version;
+	}
+	
+	@PrePersist
+	public void prePersist() {
+		createdAt = Instant.now();
+	}
+	
+	@PreUpdate
+	public void preUpdate() {
+		updatedAt = Instant.now();
+	}
+	
+	/**
+	 * Alterar apenas a coleção de categorias não dispara o @PreUpdate,
+	 * então a atualização marca o produto explicitamente
+	 */
+	public void markUpdated() {
+		updatedAt = Instant.now();
+	}
 	
 	@Override
 	public int hashCode() {
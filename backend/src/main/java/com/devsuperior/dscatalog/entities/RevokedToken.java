@@ -0,0 +1,82 @@
+package com.devsuperior.dscatalog.entities;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * Token JWT revogado antes do exp (logout ou token comprometido), identificado pelo jti.
+ * A linha só é necessária até expiresAt: depois disso o próprio token já é recusado
+ */
+@Entity
+@Table(name = "tb_revoked_token", indexes = {
+		@Index(name = "idx_revoked_token_expires_at", columnList = "expiresAt"),
+		@Index(name = "idx_revoked_token_revoked_at", columnList = "revokedAt") })
+public class RevokedToken implements Serializable {
+
+	private static final long serialVersionUID = 4803158247733941093L;
+
+	/** Tamanho máximo do jti aceito (coluna jti) */
+	public static final int JTI_MAX_LENGTH = 64;
+
+	@Id
+	@Column(length = JTI_MAX_LENGTH)
+	private String jti;
+	
+	@Column(columnDefinition = "TIMESTAMP WITHOUT TIME ZONE", nullable = false)
+	private Instant expiresAt;
+	
+	@Column(columnDefinition = "TIMESTAMP WITHOUT TIME ZONE", nullable = false)
+	private Instant revokedAt;
+	
+	public RevokedToken() {
+	}
+	
+	public RevokedToken(String jti, Instant expiresAt, Instant revokedAt) {
+		this.jti = jti;
+		this.expiresAt = expiresAt;
+		this.revokedAt = revokedAt;
+	}
+
+	public String getJti() {
+		return jti;
+	}
+
+	public Instant getExpiresAt() {
+		return expiresAt;
+	}
+
+	public Instant getRevokedAt() {
+		return revokedAt;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((jti == null) ? 0 : jti.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		RevokedToken other = (RevokedToken) obj;
+		if (jti == null) {
+			if (other.jti != null)
+				return false;
+		} else if (!jti.equals(other.jti))
+			return false;
+		return true;
+	}
+}
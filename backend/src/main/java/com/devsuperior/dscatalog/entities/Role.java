@@ -6,6 +6,7 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
 @Entity
@@ -15,7 +16,8 @@ public class Role implements Serializable {
 	private static final long serialVersionUID = 1936721339573176436L;
 	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_role")
+	@SequenceGenerator(name = "seq_role", sequenceName = "seq_role", allocationSize = 50)
 	private Long id;
 	private String authority;
 	
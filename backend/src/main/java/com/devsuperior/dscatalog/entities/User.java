@@ -15,6 +15,7 @@ import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
 import org.springframework.security.core.GrantedAuthority;
@@ -28,7 +29,8 @@ public class User implements UserDetails, Serializable {
 	private static final long serialVersionUID = -194517996699009449L;
 	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_user")
+	@SequenceGenerator(name = "seq_user", sequenceName = "seq_user", allocationSize = 50)
 	private Long id;
 	private String firstName;
 	private String lastName;
@@ -0,0 +1,20 @@
+package com.devsuperior.dscatalog.repositories;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.devsuperior.dscatalog.entities.CatalogChange;
+
+@Repository
+public interface CatalogChangeRepository extends JpaRepository<CatalogChange, Long>{
+
+	/** Varredura pela PK a partir de since, sem count (o limite vem no Pageable) */
+	@Query("SELECT obj FROM CatalogChange obj "
+			+ "WHERE obj.id > :since "
+			+ "ORDER BY obj.id")
+	List<CatalogChange> findChangesAfter(Long since, Pageable pageable);
+}
@@ -1,11 +1,108 @@
 package com.devsuperior.dscatalog.repositories;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import com.devsuperior.dscatalog.dto.ProductSummaryDTO;
 import com.devsuperior.dscatalog.entities.Product;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long>{
 
+	/**
+	 * Ids dos produtos com pelo menos :minMatches das categorias pedidas
+	 * (1 = qualquer uma, n = todas). Resolvido pelo índice (category_id, product_id)
+	 * de tb_product_category; como a consulta externa é sobre Product, o join
+	 * muitos-para-muitos não duplica linhas
+	 */
+	String IN_CATEGORIES = "SELECT p.id FROM Product p JOIN p.categories c "
+			+ "WHERE c.id IN :categoryIds GROUP BY p.id HAVING COUNT(c.id) >= :minMatches";
+
+	/** Busca o produto já com as categorias em uma única consulta (LEFT JOIN) */
+	@Override
+	@EntityGraph(attributePaths = "categories")
+	Optional<Product> findById(Long id);
+
+	/**
+	 * Carrega as categorias de todos os produtos informados em uma única consulta.
+	 * Os produtos já estão no contexto de persistência (vindos da página), então
+	 * o JOIN FETCH apenas inicializa a coleção categories de cada um, evitando o N+1
+	 */
+	@Query("SELECT DISTINCT obj FROM Product obj LEFT JOIN FETCH obj.categories WHERE obj IN :products")
+	List<Product> findProductsWithCategories(List<Product> products);
+	
+	/** Vários produtos por id já com as categorias, em uma única consulta */
+	@Query("SELECT DISTINCT obj FROM Product obj LEFT JOIN FETCH obj.categories WHERE obj.id IN :ids")
+	List<Product> findAllWithCategoriesByIdIn(Collection<Long> ids);
+	
+	/**
+	 * Listagem resumida: seleciona apenas as colunas exibidas na grade,
+	 * sem carregar a entidade e sem ler a coluna description (TEXT)
+	 */
+	@Query(value = "SELECT new com.devsuperior.dscatalog.dto.ProductSummaryDTO(obj.id, obj.name, obj.price, obj.imgUrl, obj.date) "
+			+ "FROM Product obj",
+			countQuery = "SELECT COUNT(obj) FROM Product obj")
+	Page<ProductSummaryDTO> findAllSummaries(Pageable pageable);
+	
+	@Query("SELECT new com.devsuperior.dscatalog.dto.ProductSummaryDTO(obj.id, obj.name, obj.price, obj.imgUrl, obj.date) "
+			+ "FROM Product obj")
+	Slice<ProductSummaryDTO> findAllSummariesSliced(Pageable pageable);
+	
+	@Query(value = "SELECT new com.devsuperior.dscatalog.dto.ProductSummaryDTO(obj.id, obj.name, obj.price, obj.imgUrl, obj.date) "
+			+ "FROM Product obj WHERE obj.id IN (" + IN_CATEGORIES + ")",
+			countQuery = "SELECT COUNT(obj) FROM Product obj WHERE obj.id IN (" + IN_CATEGORIES + ")")
+	Page<ProductSummaryDTO> findSummariesByCategories(Collection<Long> categoryIds, long minMatches, Pageable pageable);
+	
+	@Query("SELECT new com.devsuperior.dscatalog.dto.ProductSummaryDTO(obj.id, obj.name, obj.price, obj.imgUrl, obj.date) "
+			+ "FROM Product obj WHERE obj.id IN (" + IN_CATEGORIES + ")")
+	Slice<ProductSummaryDTO> findSummariesByCategoriesSliced(Collection<Long> categoryIds, long minMatches, Pageable pageable);
+	
+	/**
+	 * Página sem total: o Slice busca size + 1 linhas para saber se há próxima página
+	 * e não executa a consulta de count(*) que o Page exige
+	 */
+	@Query("SELECT obj FROM Product obj")
+	Slice<Product> findAllSliced(Pageable pageable);
+	
+	/**
+	 * Paginação por chave (keyset): ordena por (name, id) e continua a partir do último
+	 * item entregue, usando o índice idx_product_name_id em vez de descartar linhas com OFFSET.
+	 * Retornar List com Pageable aplica apenas o LIMIT, sem a consulta de count
+	 */
+	@Query("SELECT obj FROM Product obj ORDER BY obj.name, obj.id")
+	List<Product> findFirstKeysetPage(Pageable pageable);
+	
+	@Query("SELECT obj FROM Product obj "
+			+ "WHERE obj.name > :name OR (obj.name = :name AND obj.id > :id) "
+			+ "ORDER BY obj.name, obj.id")
+	List<Product> findKeysetPageAfter(String name, Long id, Pageable pageable);
+	
+	@Query(value = "SELECT obj FROM Product obj WHERE obj.id IN (" + IN_CATEGORIES + ")",
+			countQuery = "SELECT COUNT(obj) FROM Product obj WHERE obj.id IN (" + IN_CATEGORIES + ")")
+	Page<Product> findByCategories(Collection<Long> categoryIds, long minMatches, Pageable pageable);
+	
+	@Query("SELECT obj FROM Product obj WHERE obj.id IN (" + IN_CATEGORIES + ")")
+	Slice<Product> findSlicedByCategories(Collection<Long> categoryIds, long minMatches, Pageable pageable);
+	
+	@Query("SELECT obj FROM Product obj WHERE obj.id IN (" + IN_CATEGORIES + ") "
+			+ "ORDER BY obj.name, obj.id")
+	List<Product> findFirstKeysetPageByCategories(Collection<Long> categoryIds, long minMatches, Pageable pageable);
+	
+	@Query("SELECT obj FROM Product obj WHERE obj.id IN (" + IN_CATEGORIES + ") "
+			+ "AND (obj.name > :name OR (obj.name = :name AND obj.id > :id)) "
+			+ "ORDER BY obj.name, obj.id")
+	List<Product> findKeysetPageAfterByCategories(Collection<Long> categoryIds, long minMatches, 
+			String name, Long id, Pageable pageable);
+	
+	/** Percorre a tabela inteira em lotes pela chave primária (carga de índices em memória) */
+	List<Product> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
 }
@@ -0,0 +1,26 @@
+package com.devsuperior.dscatalog.repositories;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.devsuperior.dscatalog.entities.RevokedToken;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String>{
+
+	/** Revogações ainda válidas feitas a partir de since (carga inicial e sincronização entre instâncias) */
+	@Query("SELECT obj FROM RevokedToken obj "
+			+ "WHERE obj.revokedAt >= :since AND obj.expiresAt > :now")
+	List<RevokedToken> findActiveRevokedSince(Instant since, Instant now);
+	
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM RevokedToken obj WHERE obj.expiresAt <= :now")
+	int deleteExpired(Instant now);
+}
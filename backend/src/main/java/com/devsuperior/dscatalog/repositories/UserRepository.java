@@ -1,10 +1,17 @@
 package com.devsuperior.dscatalog.repositories;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import com.devsuperior.dscatalog.entities.User;
 
 public interface UserRepository extends JpaRepository<User, Long>{
 
 	User findByEmail(String email);
+	
+	/** Página sem total, não executa a consulta de count(*) */
+	@Query("SELECT obj FROM User obj")
+	Slice<User> findAllSliced(Pageable pageable);
 }
@@ -0,0 +1,46 @@
+package com.devsuperior.dscatalog.resources;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.devsuperior.dscatalog.dto.CatalogChangesDTO;
+import com.devsuperior.dscatalog.services.CatalogChangeService;
+import com.devsuperior.dscatalog.services.CatalogStreamService;
+
+@RestController
+@RequestMapping(value = "/catalog")
+public class CatalogResource {
+
+	@Autowired
+	private CatalogChangeService changeService;
+	
+	@Autowired
+	private CatalogStreamService streamService;
+	
+	/**
+	 * Sincronização incremental: upserts (com o estado completo) e tombstones em ordem
+	 * de sequência. Sem since devolve o log desde o início
+	 */
+	@GetMapping(value = "/changes")
+	public ResponseEntity<CatalogChangesDTO> findChanges(
+			@RequestParam(value = "since", defaultValue = "0") Long since,
+			@RequestParam(value = "limit", defaultValue = "500") Integer limit) {
+		return ResponseEntity.ok().body(changeService.findChanges(since, limit));
+	}
+	
+	/**
+	 * Alterações ao vivo via Server-Sent Events (id do evento = sequência do log).
+	 * O EventSource do navegador reenvia Last-Event-ID ao reconectar
+	 */
+	@GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter stream(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+		return streamService.subscribe(lastEventId);
+	}
+}
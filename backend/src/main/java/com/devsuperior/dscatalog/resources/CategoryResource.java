@@ -6,7 +6,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort.Direction;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -14,17 +16,27 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.devsuperior.dscatalog.components.Versioned;
 import com.devsuperior.dscatalog.dto.CategoryDTO;
+import com.devsuperior.dscatalog.dto.CursorPageDTO;
 import com.devsuperior.dscatalog.services.CategoryService;
+import com.devsuperior.dscatalog.services.exceptions.ConcurrentUpdateException;
 
 @RestController
 @RequestMapping(value = "/categories")
 public class CategoryResource {
 
+	private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+	
+	private static final int MAX_UPDATE_RETRIES = 2;
+
 	@Autowired
 	private CategoryService categoryService;
 	/*
@@ -36,14 +48,50 @@ public class CategoryResource {
 	
 	@GetMapping
 	public ResponseEntity<Page<CategoryDTO>> findAll(
-			Pageable pageable
+			Pageable pageable,
+			WebRequest request
 		) {		
 		
+		//If-None-Match com o ETag atual: 304 sem consultar o banco nem serializar
+		if(request.checkNotModified(categoryService.findListETag())) {
+			return null;
+		}
+		
 		return ResponseEntity.ok().body( categoryService.findAllPaged(pageable) );
 	}
 	
+	/** ?withTotal=false devolve um Slice, sem a consulta de count(*) */
+	@GetMapping(params = "withTotal=false")
+	public ResponseEntity<Slice<CategoryDTO>> findAllWithoutTotal(Pageable pageable, WebRequest request) {
+		if(request.checkNotModified(categoryService.findListETag())) {
+			return null;
+		}
+		return ResponseEntity.ok().body( categoryService.findAllSliced(pageable) );
+	}
+	
+	/** Paginação por cursor: ?after=&size= (after vazio para a primeira página) */
+	@GetMapping(params = "after")
+	public ResponseEntity<CursorPageDTO<CategoryDTO>> findAllByCursor(
+			@RequestParam(value = "after") String after,
+			@RequestParam(value = "size", defaultValue = "12") Integer size,
+			WebRequest request
+		) {
+		
+		if(request.checkNotModified(categoryService.findListETag())) {
+			return null;
+		}
+		
+		int limit = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+		
+		return ResponseEntity.ok().body( categoryService.findAllByCursor(after, limit) );
+	}
+	
 	@GetMapping(value = "/{id}")
-	public ResponseEntity<CategoryDTO> findById(@PathVariable Long id) {
+	public ResponseEntity<CategoryDTO> findById(@PathVariable Long id, WebRequest request) {
+		String etag = categoryService.findETag(id);
+		if(etag != null && request.checkNotModified(etag)) {
+			return null;
+		}
 		CategoryDTO dto = categoryService.findById(id);
 		return ResponseEntity.ok().body( dto );
 	}
@@ -58,11 +106,28 @@ public class CategoryResource {
 		return ResponseEntity.created(uri).body(dto);
 	}
 	
+	/**
+	 * Com If-Match, só grava se a versão ainda for a do ETag informado (412 caso contrário).
+	 * Sem If-Match a substituição é incondicional e idempotente: um conflito com outra
+	 * gravação simultânea é repetido até MAX_UPDATE_RETRIES vezes antes de responder 409
+	 */
 	@PutMapping(value = "/{id}")
-	public ResponseEntity<CategoryDTO> atualizar(@PathVariable Long id, @RequestBody CategoryDTO dto) {
-		dto = categoryService.atualizar(id, dto);
+	public ResponseEntity<CategoryDTO> atualizar(@PathVariable Long id, @RequestBody CategoryDTO dto,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		Versioned<CategoryDTO> atualizado;
+		for(int tentativa = 0; ; tentativa++) {
+			try {
+				atualizado = categoryService.atualizar(id, dto, ifMatch);
+				break;
+			}
+			catch(ConcurrentUpdateException ex) {
+				if(ifMatch != null || tentativa == MAX_UPDATE_RETRIES) {
+					throw ex;
+				}
+			}
+		}
 		
-		return ResponseEntity.ok().body( dto );
+		return ResponseEntity.ok().eTag(atualizado.getETag()).body( atualizado.getValue() );
 	}
 	
 	@DeleteMapping(value = "/{id}")
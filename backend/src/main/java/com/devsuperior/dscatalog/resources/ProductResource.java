@@ -1,32 +1,76 @@
 package com.devsuperior.dscatalog.resources;
 
+import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Supplier;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.devsuperior.dscatalog.components.Versioned;
+import com.devsuperior.dscatalog.dto.CursorPageDTO;
+import com.devsuperior.dscatalog.dto.ProductBatchDTO;
 import com.devsuperior.dscatalog.dto.ProductDTO;
+import com.devsuperior.dscatalog.dto.ProductFacetsDTO;
+import com.devsuperior.dscatalog.dto.ProductImportResultDTO;
+import com.devsuperior.dscatalog.dto.ProductSummaryDTO;
+import com.devsuperior.dscatalog.services.ProductExportService;
+import com.devsuperior.dscatalog.services.ProductFacetService;
+import com.devsuperior.dscatalog.services.ProductExportService.ExportFormat;
+import com.devsuperior.dscatalog.services.ProductImportService;
 import com.devsuperior.dscatalog.services.ProductService;
+import com.devsuperior.dscatalog.services.exceptions.ConcurrentUpdateException;
+import com.devsuperior.dscatalog.services.exceptions.InvalidRequestException;
+import com.devsuperior.dscatalog.services.filter.CategoryFilter;
+import com.devsuperior.dscatalog.services.filter.ProductFilter;
+import com.fasterxml.jackson.databind.JsonNode;
 
 @RestController
 @RequestMapping(value = "/products")
 public class ProductResource {
 
+	private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+	
+	private static final int MAX_UPDATE_RETRIES = 2;
+	
+	private static final int MAX_BATCH_IDS = 100;
+
 	@Autowired
 	private ProductService service;
+	
+	@Autowired
+	private ProductExportService exportService;
+	
+	@Autowired
+	private ProductImportService importService;
+	
+	@Autowired
+	private ProductFacetService facetService;
 	/*
 	@GetMapping
 	public ResponseEntity<List<CategoryDTO>> findAll() {		
@@ -43,21 +87,231 @@ public class ProductResource {
 	
 	@GetMapping
 	public ResponseEntity<Page<ProductDTO>> findAll(
-			Pageable pageable
+			Pageable pageable,
+			@RequestParam(value = "withCategories", defaultValue = "false") Boolean withCategories,
+			@RequestParam(value = "categoryId", required = false) List<Long> categoryIds,
+			@RequestParam(value = "match", defaultValue = "any") String match,
+			WebRequest request
 		) {		
 		
-		//PARâMETROS -> page, size, sort
+		//PARâMETROS -> page, size, sort, withCategories, categoryId (um ou mais), match (any|all)
+		CategoryFilter filter = CategoryFilter.of(categoryIds, match);
+		
+		//If-None-Match com o ETag atual: 304 sem consultar o banco nem serializar
+		if(request.checkNotModified(service.findListETag())) {
+			return null;
+		}
 		
 		//PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
-		Page<ProductDTO> list = service.findAllPaged(pageable);
+		Page<ProductDTO> list;
+		if(!filter.isEmpty()) {
+			list = service.findAllPagedByCategories(filter, pageable, withCategories);
+		}
+		else {
+			list = withCategories 
+					? service.findAllPagedWithCategories(pageable)
+					: service.findAllPaged(pageable);
+		}
+		
+		return ResponseEntity.ok().body( list );
+	}
+	
+	/**
+	 * ?withTotal=false devolve um Slice: informa apenas se existe próxima página,
+	 * dispensando o count(*) (útil para scroll infinito).
+	 * 
+	 * As variantes da listagem são mutuamente exclusivas (as negações evitam dois métodos
+	 * igualmente específicos): ids tem precedência, depois after, summary e withTotal
+	 */
+	@GetMapping(params = { "withTotal=false", "summary!=true", "!ids", "!after" })
+	public ResponseEntity<Slice<ProductDTO>> findAllWithoutTotal(
+			Pageable pageable,
+			@RequestParam(value = "withCategories", defaultValue = "false") Boolean withCategories,
+			@RequestParam(value = "categoryId", required = false) List<Long> categoryIds,
+			@RequestParam(value = "match", defaultValue = "any") String match,
+			WebRequest request
+		) {
+		
+		CategoryFilter filter = CategoryFilter.of(categoryIds, match);
+		
+		if(request.checkNotModified(service.findListETag())) {
+			return null;
+		}
+		
+		Slice<ProductDTO> list = service.findAllSliced(pageable, withCategories, filter);
+		
+		return ResponseEntity.ok().body( list );
+	}
+	
+	/**
+	 * ?summary=true devolve apenas id, name, price, imgUrl e date de cada produto
+	 * (sem a descrição), aceitando também withTotal=false
+	 */
+	@GetMapping(params = { "summary=true", "!ids", "!after" })
+	public ResponseEntity<Slice<ProductSummaryDTO>> findAllSummaries(
+			Pageable pageable,
+			@RequestParam(value = "withTotal", defaultValue = "true") Boolean withTotal,
+			@RequestParam(value = "categoryId", required = false) List<Long> categoryIds,
+			@RequestParam(value = "match", defaultValue = "any") String match,
+			WebRequest request
+		) {
+		
+		CategoryFilter filter = CategoryFilter.of(categoryIds, match);
+		
+		if(request.checkNotModified(service.findListETag())) {
+			return null;
+		}
+		
+		Slice<ProductSummaryDTO> list = service.findAllSummaries(pageable, withTotal, filter);
 		
 		return ResponseEntity.ok().body( list );
 	}
 	
+	/**
+	 * ?ids=1,5,9 devolve vários produtos em uma requisição, na ordem pedida;
+	 * ids inexistentes vão em missing em vez de gerar 404
+	 */
+	@GetMapping(params = "ids")
+	public ResponseEntity<ProductBatchDTO> findAllByIds(
+			@RequestParam(value = "ids") List<Long> ids,
+			WebRequest request
+		) {
+		
+		if(ids.size() > MAX_BATCH_IDS) {
+			throw new InvalidRequestException("At most " + MAX_BATCH_IDS + " ids per request");
+		}
+		
+		if(request.checkNotModified(service.findListETag())) {
+			return null;
+		}
+		
+		return ResponseEntity.ok().body( service.findAllByIds(ids) );
+	}
+	
+	/**
+	 * Navegação facetada: categorias (categoryId + match), faixa de preço (minPrice/maxPrice)
+	 * e janela de datas (from/to, ISO-8601), resolvidos no índice em memória.
+	 * Resultado ordenado por id (o parâmetro sort é ignorado)
+	 */
+	@GetMapping(value = "/filter")
+	public ResponseEntity<Page<ProductDTO>> filter(
+			Pageable pageable,
+			@RequestParam(value = "categoryId", required = false) List<Long> categoryIds,
+			@RequestParam(value = "match", defaultValue = "any") String match,
+			@RequestParam(value = "minPrice", required = false) Double minPrice,
+			@RequestParam(value = "maxPrice", required = false) Double maxPrice,
+			@RequestParam(value = "from", required = false) Instant from,
+			@RequestParam(value = "to", required = false) Instant to,
+			@RequestParam(value = "withCategories", defaultValue = "false") Boolean withCategories,
+			WebRequest request
+		) {
+		
+		ProductFilter filter = ProductFilter.of(CategoryFilter.of(categoryIds, match), minPrice, maxPrice, from, to);
+		
+		if(request.checkNotModified(service.findListETag())) {
+			return null;
+		}
+		
+		return ResponseEntity.ok().body( service.filter(filter, pageable, withCategories) );
+	}
+	
+	/**
+	 * Contagem de produtos por categoria e por faixa de preço para o filtro atual
+	 * (mesmos parâmetros de /filter, mais a busca textual q)
+	 */
+	@GetMapping(value = "/facets")
+	public ResponseEntity<ProductFacetsDTO> facets(
+			@RequestParam(value = "q", required = false) String q,
+			@RequestParam(value = "categoryId", required = false) List<Long> categoryIds,
+			@RequestParam(value = "match", defaultValue = "any") String match,
+			@RequestParam(value = "minPrice", required = false) Double minPrice,
+			@RequestParam(value = "maxPrice", required = false) Double maxPrice,
+			@RequestParam(value = "from", required = false) Instant from,
+			@RequestParam(value = "to", required = false) Instant to,
+			WebRequest request
+		) {
+		
+		ProductFilter filter = ProductFilter.of(CategoryFilter.of(categoryIds, match), minPrice, maxPrice, from, to);
+		
+		if(request.checkNotModified(service.findListETag())) {
+			return null;
+		}
+		
+		return ResponseEntity.ok().body( facetService.facets(q, filter) );
+	}
+	
+	/**
+	 * Exporta o catálogo inteiro (?format=ndjson|csv) escrevendo direto na resposta,
+	 * sem montar a lista em memória
+	 */
+	@GetMapping(value = "/export")
+	public void export(
+			@RequestParam(value = "format", defaultValue = "ndjson") String format,
+			HttpServletResponse response
+		) throws IOException {
+		
+		ExportFormat exportFormat = ExportFormat.of(format);
+		
+		exportService.export(exportFormat, () -> {
+			response.setContentType(exportFormat.getContentType());
+			response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+			response.setHeader(HttpHeaders.CONTENT_DISPOSITION, 
+					"attachment; filename=\"products." + exportFormat.getExtension() + "\"");
+			return response.getOutputStream();
+		});
+	}
+	
+	/**
+	 * Paginação por cursor: ?after=&size= (after vazio para a primeira página).
+	 * Cada resposta traz o nextCursor a ser enviado no próximo ?after=
+	 */
+	@GetMapping(params = { "after", "!ids" })
+	public ResponseEntity<CursorPageDTO<ProductDTO>> findAllByCursor(
+			@RequestParam(value = "after") String after,
+			@RequestParam(value = "size", defaultValue = "12") Integer size,
+			@RequestParam(value = "withCategories", defaultValue = "false") Boolean withCategories,
+			@RequestParam(value = "categoryId", required = false) List<Long> categoryIds,
+			@RequestParam(value = "match", defaultValue = "any") String match,
+			WebRequest request
+		) {
+		
+		CategoryFilter filter = CategoryFilter.of(categoryIds, match);
+		
+		if(request.checkNotModified(service.findListETag())) {
+			return null;
+		}
+		
+		CursorPageDTO<ProductDTO> list = service.findAllByCursor(after, limitSize(size), withCategories, filter);
+		
+		return ResponseEntity.ok().body( list );
+	}
+	
+	/** Busca textual em nome e descrição: ?q=&page=&size=, ordenada por relevância */
+	@GetMapping(value = "/search")
+	public ResponseEntity<Page<ProductDTO>> search(
+			@RequestParam(value = "q", defaultValue = "") String q,
+			Pageable pageable,
+			WebRequest request
+		) {
+		
+		if(request.checkNotModified(service.findListETag())) {
+			return null;
+		}
+		
+		return ResponseEntity.ok().body( service.search(q, pageable) );
+	}
+	
+	/**
+	 * O ETag vem junto com o produto do cache de detalhe: um If-None-Match
+	 * que confere é respondido com 304 sem banco e sem serialização
+	 */
 	@GetMapping(value = "/{id}")
-	public ResponseEntity<ProductDTO> findById(@PathVariable Long id) {
-		ProductDTO dto = service.findById(id);
-		return ResponseEntity.ok().body( dto );
+	public ResponseEntity<ProductDTO> findById(@PathVariable Long id, WebRequest request) {
+		Versioned<ProductDTO> versioned = service.findVersionedById(id);
+		if(request.checkNotModified(versioned.getETag())) {
+			return null;
+		}
+		return ResponseEntity.ok().body( versioned.getValue() );
 	}
 	
 	/** O @Valid faz as validações do bean validation definidas no dto */
@@ -71,11 +325,55 @@ public class ProductResource {
 		return ResponseEntity.created(uri).body(dto);
 	}
 	
+	/**
+	 * Importação em lote: aceita um array JSON ou NDJSON (um produto por linha),
+	 * lidos em streaming. Devolve a contagem e os erros de cada linha rejeitada
+	 */
+	@PostMapping(value = "/import", consumes = { MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson" })
+	public ResponseEntity<ProductImportResultDTO> importar(HttpServletRequest request) throws IOException {
+		return ResponseEntity.ok().body( importService.importar(request.getInputStream()) );
+	}
+	
+	/**
+	 * Com If-Match, só grava se a versão ainda for a do ETag informado (412 caso contrário).
+	 * Sem If-Match a substituição é incondicional e idempotente (ver comRetry)
+	 */
 	@PutMapping(value = "/{id}")
-	public ResponseEntity<ProductDTO> atualizar(@PathVariable Long id, @Valid @RequestBody ProductDTO dto) {
-		dto = service.atualizar(id, dto);
+	public ResponseEntity<ProductDTO> atualizar(@PathVariable Long id, @Valid @RequestBody ProductDTO dto,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		Versioned<ProductDTO> atualizado = comRetry(ifMatch, () -> service.atualizar(id, dto, ifMatch));
 		
-		return ResponseEntity.ok().body( dto );
+		return ResponseEntity.ok().eTag(atualizado.getETag()).body( atualizado.getValue() );
+	}
+	
+	/**
+	 * Atualização parcial (JSON Merge Patch): envia só os campos a alterar,
+	 * ex. {"price": 99.9}. Aceita If-Match como o PUT
+	 */
+	@PatchMapping(value = "/{id}", consumes = { "application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE })
+	public ResponseEntity<ProductDTO> patch(@PathVariable Long id, @RequestBody JsonNode patch,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		Versioned<ProductDTO> atualizado = comRetry(ifMatch, () -> service.patch(id, patch, ifMatch));
+		
+		return ResponseEntity.ok().eTag(atualizado.getETag()).body( atualizado.getValue() );
+	}
+	
+	/**
+	 * Sem If-Match, um conflito com outra gravação simultânea é repetido (sobre a versão
+	 * nova) até MAX_UPDATE_RETRIES vezes antes de responder 409. Com If-Match o cliente
+	 * pediu uma versão específica: o conflito volta direto
+	 */
+	private static Versioned<ProductDTO> comRetry(String ifMatch, Supplier<Versioned<ProductDTO>> update) {
+		for(int tentativa = 0; ; tentativa++) {
+			try {
+				return update.get();
+			}
+			catch(ConcurrentUpdateException ex) {
+				if(ifMatch != null || tentativa == MAX_UPDATE_RETRIES) {
+					throw ex;
+				}
+			}
+		}
 	}
 	
 	@DeleteMapping(value = "/{id}")
@@ -84,4 +382,8 @@ public class ProductResource {
 		
 		return ResponseEntity.noContent().build();
 	}
+	
+	private int limitSize(Integer size) {
+		return Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+	}
 }
@@ -0,0 +1,37 @@
+package com.devsuperior.dscatalog.resources;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.authentication.OAuth2AuthenticationDetails;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.devsuperior.dscatalog.services.TokenRevocationService;
+
+@RestController
+@RequestMapping(value = "/tokens")
+public class TokenResource {
+
+	@Autowired
+	private TokenRevocationService service;
+	
+	/** Logout: o token usado nesta requisição deixa de ser aceito */
+	@DeleteMapping(value = "/current")
+	public ResponseEntity<Void> revokeCurrent(OAuth2Authentication authentication) {
+		OAuth2AuthenticationDetails details = (OAuth2AuthenticationDetails) authentication.getDetails();
+		service.revokeToken(details.getTokenValue());
+		
+		return ResponseEntity.noContent().build();
+	}
+	
+	/** Revoga um token comprometido pelo jti (somente ADMIN) */
+	@DeleteMapping(value = "/{jti}")
+	public ResponseEntity<Void> revoke(@PathVariable String jti) {
+		service.revokeJti(jti);
+		
+		return ResponseEntity.noContent().build();
+	}
+}
@@ -7,6 +7,7 @@ import javax.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -39,6 +40,12 @@ public class UserResource {
 		return ResponseEntity.ok().body( list );
 	}
 	
+	/** ?withTotal=false devolve um Slice, sem a consulta de count(*) */
+	@GetMapping(params = "withTotal=false")
+	public ResponseEntity<Slice<UserDTO>> findAllWithoutTotal(Pageable pageable) {
+		return ResponseEntity.ok().body( service.findAllSliced(pageable) );
+	}
+	
 	@GetMapping(value = "/{id}")
 	public ResponseEntity<UserDTO> findById(@PathVariable Long id) {
 		UserDTO dto = service.findById(id);
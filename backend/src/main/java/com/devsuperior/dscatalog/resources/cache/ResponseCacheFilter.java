@@ -0,0 +1,161 @@
+package com.devsuperior.dscatalog.resources.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import com.devsuperior.dscatalog.components.ResponseCache;
+import com.devsuperior.dscatalog.components.ResponseCache.CachedResponse;
+
+/**
+ * Serve GETs anônimos do ResponseCache. Fica antes da cadeia do Spring Security:
+ * um acerto devolve os bytes guardados (gzip quando o cliente aceita) sem passar
+ * por autenticação, controller ou banco.
+ * 
+ * Na falta, a resposta é guardada somente se for 200 e trouxer o header Surrogate-Key
+ * (posto pelo SurrogateKeyAdvice), o que deixa de fora erros e respostas escritas
+ * direto no stream
+ */
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+	public static final String X_CACHE = "X-Cache";
+	
+	private static final int GZIP_MIN_BYTES = 1024;
+	
+	/** Cabeçalhos que não devem ser repetidos a partir do cache */
+	private static final Set<String> SKIPPED_HEADERS = Set.of(
+			HttpHeaders.CONTENT_LENGTH.toLowerCase(), HttpHeaders.CONTENT_TYPE.toLowerCase(), 
+			HttpHeaders.SET_COOKIE.toLowerCase(), X_CACHE.toLowerCase());
+	
+	private final ResponseCache cache;
+	private final int maxBodyBytes;
+	private final Set<String> excludedPaths;
+	
+	public ResponseCacheFilter(ResponseCache cache, int maxBodyBytes, Set<String> excludedPaths) {
+		this.cache = cache;
+		this.maxBodyBytes = maxBodyBytes;
+		this.excludedPaths = excludedPaths;
+	}
+	
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		return !HttpMethod.GET.matches(request.getMethod()) 
+				|| !ResponseCache.isAnonymous(request)
+				|| excludedPaths.contains(request.getRequestURI().substring(request.getContextPath().length()));
+	}
+	
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		
+		String key = ResponseCache.key(request);
+		
+		CachedResponse hit = cache.get(key);
+		if(hit != null) {
+			writeHit(hit, request, response);
+			return;
+		}
+		
+		long generation = cache.generation();
+		ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+		try {
+			chain.doFilter(request, wrapper);
+			
+			String surrogateKey = wrapper.getHeader(ResponseCache.SURROGATE_KEY);
+			if(wrapper.getStatus() == HttpServletResponse.SC_OK && surrogateKey != null 
+					&& wrapper.getContentSize() <= maxBodyBytes) {
+				byte[] body = wrapper.getContentAsByteArray();
+				wrapper.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+				cache.put(key, new CachedResponse(body, gzip(body), wrapper.getContentType(), 
+						headersOf(wrapper), surrogateKey), generation);
+			}
+			wrapper.setHeader(X_CACHE, "MISS");
+		}
+		finally {
+			wrapper.copyBodyToResponse();
+		}
+	}
+	
+	private void writeHit(CachedResponse hit, HttpServletRequest request, HttpServletResponse response) throws IOException {
+		hit.getHeaders().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+		response.setHeader(X_CACHE, "HIT");
+		
+		//mesmo ETag enquanto a entrada existir: qualquer escrita que o mude também a remove
+		String etag = response.getHeader(HttpHeaders.ETAG);
+		String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+		if(etag != null && matchesNoneMatch(ifNoneMatch, etag)) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+		
+		byte[] body = hit.getBody();
+		String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+		if(hit.getGzippedBody() != null && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+			body = hit.getGzippedBody();
+			response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+		}
+		
+		response.setStatus(HttpServletResponse.SC_OK);
+		response.setContentType(hit.getContentType());
+		response.setContentLength(body.length);
+		response.getOutputStream().write(body);
+	}
+	
+	private static Map<String, List<String>> headersOf(HttpServletResponse response) {
+		Map<String, List<String>> headers = new LinkedHashMap<>();
+		for(String name : response.getHeaderNames()) {
+			if(!SKIPPED_HEADERS.contains(name.toLowerCase())) {
+				headers.put(name, new ArrayList<>(response.getHeaders(name)));
+			}
+		}
+		return headers;
+	}
+	
+	private static byte[] gzip(byte[] body) throws IOException {
+		if(body.length < GZIP_MIN_BYTES) {
+			return null;
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+		try(GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(body);
+		}
+		return out.toByteArray();
+	}
+	
+	/**
+	 * If-None-Match usa comparação fraca: compara cada ETag da lista, ignorando o W/,
+	 * por igualdade exata ("*" confere com qualquer um)
+	 */
+	static boolean matchesNoneMatch(String ifNoneMatch, String etag) {
+		if(ifNoneMatch == null) {
+			return false;
+		}
+		String current = weak(etag);
+		for(String candidate : ifNoneMatch.split(",")) {
+			String tag = candidate.trim();
+			if(tag.equals("*") || weak(tag).equals(current)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private static String weak(String etag) {
+		return etag.startsWith("W/") ? etag.substring(2) : etag;
+	}
+}
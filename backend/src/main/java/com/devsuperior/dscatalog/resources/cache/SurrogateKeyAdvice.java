@@ -0,0 +1,128 @@
+package com.devsuperior.dscatalog.resources.cache;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import com.devsuperior.dscatalog.components.ResponseCache;
+import com.devsuperior.dscatalog.dto.CategoryDTO;
+import com.devsuperior.dscatalog.dto.CursorPageDTO;
+import com.devsuperior.dscatalog.dto.ProductBatchDTO;
+import com.devsuperior.dscatalog.dto.ProductDTO;
+import com.devsuperior.dscatalog.dto.ProductFacetsDTO;
+import com.devsuperior.dscatalog.dto.ProductSummaryDTO;
+
+/**
+ * Marca as respostas GET de produtos e categorias com o header Surrogate-Key
+ * (ids contidos no corpo + "products"/"categories" nas listagens), usado pelo
+ * ResponseCache e por caches externos (CDN) para purgar por tag.
+ * Para clientes anônimos também libera o cache compartilhado via Cache-Control.
+ * 
+ * Acima de MAX_ITEM_TAGS tags por item o header passaria do limite de headers do
+ * Tomcat (8 KB): as excedentes são trocadas pela tag geral (products/categories),
+ * que também é purgada em qualquer escrita do tipo
+ */
+@ControllerAdvice
+public class SurrogateKeyAdvice implements ResponseBodyAdvice<Object> {
+
+	static final int MAX_ITEM_TAGS = 100;
+
+	@Value("${catalog.response-cache.ttl-seconds:60}")
+	private long ttlSeconds;
+	
+	@Override
+	public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+		return true;
+	}
+
+	@Override
+	public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+			Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+			ServerHttpResponse response) {
+		
+		if(body == null || !(request instanceof ServletServerHttpRequest) || request.getMethod() != HttpMethod.GET) {
+			return body;
+		}
+		
+		HttpServletRequest servletRequest = ((ServletServerHttpRequest) request).getServletRequest();
+		String path = servletRequest.getRequestURI().substring(servletRequest.getContextPath().length());
+		
+		Set<String> tags = tagsOf(path, body);
+		if(tags.isEmpty()) {
+			return body;
+		}
+		
+		response.getHeaders().set(ResponseCache.SURROGATE_KEY, String.join(" ", tags));
+		if(ResponseCache.isAnonymous(servletRequest)) {
+			//navegador revalida sempre (ETag); caches compartilhados guardam por ttlSeconds
+			response.getHeaders().setCacheControl("public, max-age=0, s-maxage=" + ttlSeconds);
+		}
+		return body;
+	}
+	
+	static Set<String> tagsOf(String path, Object body) {
+		Set<String> tags = new LinkedHashSet<>();
+		
+		if(body instanceof ProductFacetsDTO) {
+			tags.add(ResponseCache.PRODUCTS);
+			tags.add(ResponseCache.CATEGORIES);
+			return tags;
+		}
+		
+		boolean collection = body instanceof Iterable || body instanceof CursorPageDTO || body instanceof ProductBatchDTO;
+		if(collection) {
+			tags.add(path.startsWith("/categories") ? ResponseCache.CATEGORIES : ResponseCache.PRODUCTS);
+		}
+		Set<String> itemTags = new LinkedHashSet<>();
+		collect(body, itemTags);
+		
+		int kept = 0;
+		for(String tag : itemTags) {
+			if(kept < MAX_ITEM_TAGS) {
+				tags.add(tag);
+				kept++;
+			}
+			else {
+				tags.add(tag.startsWith(ResponseCache.PRODUCT_TAG_PREFIX) ? ResponseCache.PRODUCTS : ResponseCache.CATEGORIES);
+			}
+		}
+		return tags;
+	}
+	
+	private static void collect(Object body, Set<String> tags) {
+		if(body instanceof ProductDTO) {
+			ProductDTO dto = (ProductDTO) body;
+			tags.add(ResponseCache.productTag(dto.getId()));
+			dto.getCategories().forEach(cat -> tags.add(ResponseCache.categoryTag(cat.getId())));
+		}
+		else if(body instanceof ProductSummaryDTO) {
+			tags.add(ResponseCache.productTag(((ProductSummaryDTO) body).getId()));
+		}
+		else if(body instanceof CategoryDTO) {
+			tags.add(ResponseCache.categoryTag(((CategoryDTO) body).getId()));
+		}
+		else if(body instanceof CursorPageDTO) {
+			collect(((CursorPageDTO<?>) body).getContent(), tags);
+		}
+		else if(body instanceof ProductBatchDTO) {
+			collect(((ProductBatchDTO) body).getContent(), tags);
+		}
+		else if(body instanceof Iterable) {
+			for(Object item : (Iterable<?>) body) {
+				collect(item, tags);
+			}
+		}
+	}
+}
@@ -3,7 +3,10 @@ package com.devsuperior.dscatalog.resources.exceptions;
 import java.time.Instant;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -11,8 +14,13 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
+import com.devsuperior.dscatalog.services.exceptions.ConcurrentUpdateException;
 import com.devsuperior.dscatalog.services.exceptions.DatabaseException;
+import com.devsuperior.dscatalog.services.exceptions.InvalidCursorException;
+import com.devsuperior.dscatalog.services.exceptions.InvalidRequestException;
+import com.devsuperior.dscatalog.services.exceptions.PreconditionFailedException;
 import com.devsuperior.dscatalog.services.exceptions.ResourceNotFoundException;
+import com.devsuperior.dscatalog.services.exceptions.ServiceOverloadedException;
 
 @ControllerAdvice
 public class ResourceExceptionHandler {
@@ -48,6 +56,85 @@ public class ResourceExceptionHandler {
 		return ResponseEntity.status(status).body(err);
 	}
 	
+	@ExceptionHandler(InvalidCursorException.class)
+	public ResponseEntity<StandardError> invalidCursor(InvalidCursorException e, 
+			HttpServletRequest req) {
+		HttpStatus status = HttpStatus.BAD_REQUEST;
+		
+		StandardError err = new StandardError();
+		err.setTimestamp(Instant.now());
+		err.setStatus(status.value());
+		err.setError("Invalid cursor");
+		err.setMesssage(e.getMessage());
+		err.setPath(req.getRequestURI());
+		
+		return ResponseEntity.status(status).body(err);
+	}
+	
+	@ExceptionHandler(InvalidRequestException.class)
+	public ResponseEntity<StandardError> invalidRequest(InvalidRequestException e, 
+			HttpServletRequest req) {
+		HttpStatus status = HttpStatus.BAD_REQUEST;
+		
+		StandardError err = new StandardError();
+		err.setTimestamp(Instant.now());
+		err.setStatus(status.value());
+		err.setError("Invalid request");
+		err.setMesssage(e.getMessage());
+		err.setPath(req.getRequestURI());
+		
+		return ResponseEntity.status(status).body(err);
+	}
+	
+	/** If-Match não confere com a versão atual: o cliente deve reler o recurso */
+	@ExceptionHandler(PreconditionFailedException.class)
+	public ResponseEntity<StandardError> preconditionFailed(PreconditionFailedException e, 
+			HttpServletRequest req) {
+		HttpStatus status = HttpStatus.PRECONDITION_FAILED;
+		
+		StandardError err = new StandardError();
+		err.setTimestamp(Instant.now());
+		err.setStatus(status.value());
+		err.setError("Precondition failed");
+		err.setMesssage(e.getMessage());
+		err.setPath(req.getRequestURI());
+		
+		return ResponseEntity.status(status).body(err);
+	}
+	
+	/** Outra transação alterou o recurso entre a leitura e a gravação */
+	@ExceptionHandler(ConcurrentUpdateException.class)
+	public ResponseEntity<StandardError> concurrentUpdate(ConcurrentUpdateException e, 
+			HttpServletRequest req) {
+		HttpStatus status = HttpStatus.CONFLICT;
+		
+		StandardError err = new StandardError();
+		err.setTimestamp(Instant.now());
+		err.setStatus(status.value());
+		err.setError("Concurrent update");
+		err.setMesssage(e.getMessage());
+		err.setPath(req.getRequestURI());
+		
+		return ResponseEntity.status(status).body(err);
+	}
+	
+	/** Pool do BCrypt ou vagas de exportação esgotados: rejeita rápido em vez de segurar a thread da requisição */
+	@ExceptionHandler(ServiceOverloadedException.class)
+	public ResponseEntity<StandardError> serviceOverloaded(ServiceOverloadedException e, 
+			HttpServletRequest req) {
+		HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+		
+		StandardError err = new StandardError();
+		err.setTimestamp(Instant.now());
+		err.setStatus(status.value());
+		err.setError("Service overloaded");
+		err.setMesssage(e.getMessage());
+		err.setPath(req.getRequestURI());
+		
+		return ResponseEntity.status(status)
+				.header(HttpHeaders.RETRY_AFTER, ServiceOverloadedException.RETRY_AFTER_SECONDS).body(err);
+	}
+	
 	/**
 	 * Para tratar o bean validation
 	 */
@@ -70,4 +157,24 @@ public class ResourceExceptionHandler {
 		
 		return ResponseEntity.status(status).body(err);
 	}
+	
+	/** Bean validation feita no service (ex.: resultado de um PATCH) */
+	@ExceptionHandler(ConstraintViolationException.class)
+	public ResponseEntity<ValidationError> constraintViolation(ConstraintViolationException e, 
+			HttpServletRequest req) {
+		HttpStatus status = HttpStatus.UNPROCESSABLE_ENTITY;   
+		
+		ValidationError err = new ValidationError();
+		err.setTimestamp(Instant.now());
+		err.setStatus(status.value());
+		err.setError("Validation exception");
+		err.setMesssage(e.getMessage());
+		err.setPath(req.getRequestURI());
+		
+		for(ConstraintViolation<?> v : e.getConstraintViolations()) {
+			err.addError(v.getPropertyPath().toString(), v.getMessage());
+		}
+		
+		return ResponseEntity.status(status).body(err);
+	}
 }
@@ -0,0 +1,59 @@
+package com.devsuperior.dscatalog.resources.exceptions;
+
+import java.io.IOException;
+import java.time.Instant;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.devsuperior.dscatalog.services.exceptions.ServiceOverloadedException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * A autenticação do client (Basic) no /oauth/token roda nos filtros do Spring Security,
+ * fora do alcance do ResourceExceptionHandler. Este filtro fica antes deles e responde
+ * a ServiceOverloadedException com o mesmo 503 do handler
+ */
+public class ServiceOverloadedFilter extends OncePerRequestFilter {
+
+	private final ObjectMapper objectMapper;
+	
+	public ServiceOverloadedFilter(ObjectMapper objectMapper) {
+		this.objectMapper = objectMapper;
+	}
+	
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		try {
+			chain.doFilter(request, response);
+		}
+		catch(ServletException | RuntimeException e) {
+			ServiceOverloadedException overloaded = ServiceOverloadedException.findIn(e);
+			if(overloaded == null || response.isCommitted()) {
+				throw e;
+			}
+			
+			HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+			StandardError err = new StandardError();
+			err.setTimestamp(Instant.now());
+			err.setStatus(status.value());
+			err.setError("Service overloaded");
+			err.setMesssage(overloaded.getMessage());
+			err.setPath(request.getRequestURI());
+			
+			response.resetBuffer();
+			response.setStatus(status.value());
+			response.setHeader(HttpHeaders.RETRY_AFTER, ServiceOverloadedException.RETRY_AFTER_SECONDS);
+			response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+			objectMapper.writeValue(response.getOutputStream(), err);
+		}
+	}
+}
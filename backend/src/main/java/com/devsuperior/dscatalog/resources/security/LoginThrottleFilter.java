@@ -0,0 +1,69 @@
+package com.devsuperior.dscatalog.resources.security;
+
+import java.io.IOException;
+import java.time.Instant;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.devsuperior.dscatalog.components.LoginAttemptThrottle;
+import com.devsuperior.dscatalog.components.ThrottledAuthenticationProvider;
+import com.devsuperior.dscatalog.resources.exceptions.StandardError;
+import com.devsuperior.dscatalog.services.exceptions.LoginThrottledException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Recusa com 429 o /oauth/token de e-mail ou IP bloqueado antes dos filtros do Spring
+ * Security: nem o BCrypt do client secret (Basic) roda. O ThrottledAuthenticationProvider
+ * faz a mesma verificação e é quem registra as falhas.
+ * 
+ * O IP é o remoteAddr, que atrás de proxy confiável já vem do X-Forwarded-For
+ * (server.forward-headers-strategy=native)
+ */
+public class LoginThrottleFilter extends OncePerRequestFilter {
+
+	private final LoginAttemptThrottle throttle;
+	private final ObjectMapper objectMapper;
+	
+	public LoginThrottleFilter(LoginAttemptThrottle throttle, ObjectMapper objectMapper) {
+		this.throttle = throttle;
+		this.objectMapper = objectMapper;
+	}
+	
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		return !HttpMethod.POST.matches(request.getMethod()) || !"password".equals(request.getParameter("grant_type"));
+	}
+	
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		String email = ThrottledAuthenticationProvider.normalize(request.getParameter("username"));
+		long retryAfter = throttle.retryAfterSeconds(email, request.getRemoteAddr());
+		if(retryAfter == 0) {
+			chain.doFilter(request, response);
+			return;
+		}
+		
+		HttpStatus status = HttpStatus.TOO_MANY_REQUESTS;
+		StandardError err = new StandardError();
+		err.setTimestamp(Instant.now());
+		err.setStatus(status.value());
+		err.setError("Too many login attempts");
+		err.setMesssage(new LoginThrottledException(retryAfter).getMessage());
+		err.setPath(request.getRequestURI());
+		
+		response.setStatus(status.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		objectMapper.writeValue(response.getOutputStream(), err);
+	}
+}
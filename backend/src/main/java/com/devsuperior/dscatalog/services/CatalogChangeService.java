@@ -0,0 +1,121 @@
+package com.devsuperior.dscatalog.services;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.devsuperior.dscatalog.dto.CatalogChangeDTO;
+import com.devsuperior.dscatalog.dto.CatalogChangesDTO;
+import com.devsuperior.dscatalog.entities.CatalogChange;
+import com.devsuperior.dscatalog.entities.CatalogChangeCounter;
+import com.devsuperior.dscatalog.entities.CatalogChange.EntityType;
+import com.devsuperior.dscatalog.entities.CatalogChange.Operation;
+import com.devsuperior.dscatalog.repositories.CatalogChangeRepository;
+import com.devsuperior.dscatalog.services.events.CatalogChangeRecordedEvent;
+import com.devsuperior.dscatalog.services.events.CategoryChangedEvent;
+import com.devsuperior.dscatalog.services.events.ProductChangedEvent;
+import com.devsuperior.dscatalog.services.exceptions.InvalidRequestException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Log de alterações do catálogo para sincronização incremental (outbox).
+ * 
+ * Os ouvintes são síncronos (@EventListener, não @TransactionalEventListener):
+ * o registro entra na transação da escrita e só existe se ela fizer commit.
+ * 
+ * As sequências saem do CatalogChangeCounter, travado até o commit: uma sequência
+ * só fica visível depois de todas as menores, e quem leu até next nunca perde uma
+ * alteração que faça commit depois. O custo é serializar, entre o primeiro registro
+ * e o commit, as transações que alteram o catálogo
+ */
+@Service
+public class CatalogChangeService {
+
+	public static final int MAX_LIMIT = 1000;
+	
+	@Autowired
+	private CatalogChangeRepository repository;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Autowired
+	private ApplicationEventPublisher publisher;
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	@EventListener
+	public void onProductChanged(ProductChangedEvent event) {
+		if(event.getType() == ProductChangedEvent.Type.SAVED) {
+			record(EntityType.PRODUCT, event.getId(), Operation.UPSERT, toJson(event.getProduct()));
+		}
+		else {
+			record(EntityType.PRODUCT, event.getId(), Operation.DELETE, null);
+		}
+	}
+	
+	@EventListener
+	public void onCategoryChanged(CategoryChangedEvent event) {
+		if(event.getType() == CategoryChangedEvent.Type.SAVED) {
+			record(EntityType.CATEGORY, event.getId(), Operation.UPSERT, toJson(event.getCategory()));
+		}
+		else {
+			record(EntityType.CATEGORY, event.getId(), Operation.DELETE, null);
+		}
+	}
+	
+	/** Grava no outbox e avisa, já com a sequência, quem transmite as alterações ao vivo */
+	private void record(EntityType entityType, Long entityId, Operation operation, String payload) {
+		//na mesma transação a trava já está com ela: o find não volta ao banco
+		CatalogChangeCounter counter = entityManager.find(
+				CatalogChangeCounter.class, CatalogChangeCounter.ID, LockModeType.PESSIMISTIC_WRITE);
+		if(counter == null) {
+			throw new IllegalStateException("tb_catalog_change_counter sem a linha " + CatalogChangeCounter.ID);
+		}
+		CatalogChange change = new CatalogChange(counter.next(), entityType, entityId, operation, payload);
+		entityManager.persist(change);
+		publisher.publishEvent(new CatalogChangeRecordedEvent(new CatalogChangeDTO(change)));
+	}
+	
+	/** Alterações com sequência maior que since, em ordem; next = última sequência entregue */
+	@Transactional(readOnly = true)
+	public CatalogChangesDTO findChanges(Long since, int limit) {
+		if(since < 0) {
+			throw new InvalidRequestException("since must not be negative");
+		}
+		if(limit < 1 || limit > MAX_LIMIT) {
+			throw new InvalidRequestException("limit must be between 1 and " + MAX_LIMIT);
+		}
+		
+		//uma linha a mais só indica se há mais alterações
+		List<CatalogChange> rows = repository.findChangesAfter(since, PageRequest.of(0, limit + 1));
+		
+		boolean hasMore = rows.size() > limit;
+		List<CatalogChange> page = hasMore ? rows.subList(0, limit) : rows;
+		Long next = page.isEmpty() ? since : page.get(page.size() - 1).getId();
+		
+		return new CatalogChangesDTO(
+				page.stream().map(CatalogChangeDTO::new).collect(Collectors.toList()), next, hasMore);
+	}
+	
+	private String toJson(Object dto) {
+		try {
+			return objectMapper.writeValueAsString(dto);
+		}
+		catch(JsonProcessingException e) {
+			throw new IllegalStateException("Falha ao serializar alteração do catálogo", e);
+		}
+	}
+}
@@ -0,0 +1,323 @@
+package com.devsuperior.dscatalog.services;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.devsuperior.dscatalog.dto.CatalogChangeDTO;
+import com.devsuperior.dscatalog.dto.CatalogChangesDTO;
+import com.devsuperior.dscatalog.services.events.CatalogChangeRecordedEvent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Transmite por SSE as alterações do catálogo depois do commit.
+ *
+ * O SseEmitter usa o modo assíncrono do servlet: a thread do Tomcat é liberada assim
+ * que a inscrição é feita e um assinante ocioso não ocupa thread nenhuma. Os envios
+ * saem de um pool pequeno, nunca da thread que fez o commit; cada assinante tem uma
+ * fila limitada e quem não a esvazia a tempo é desconectado (ao reconectar com
+ * Last-Event-ID recebe o que perdeu a partir do log de alterações).
+ *
+ * Cada envio é uma escrita bloqueante: um cliente que não lê (janela TCP cheia) prende a
+ * thread do pool. Um envio parado há mais de send-timeout-ms desconecta o assinante,
+ * interrompe a thread e põe outra no pool no lugar dela enquanto a escrita não retorna,
+ * então clientes lentos não atrasam a entrega (nem os heartbeats) dos demais.
+ */
+@Service
+public class CatalogStreamService {
+
+	private static final Object HEARTBEAT = new Object();
+
+	@Autowired
+	private CatalogChangeService changeService;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@Value("${catalog.stream.buffer-size:256}")
+	private int bufferSize;
+
+	@Value("${catalog.stream.timeout-ms:1800000}")
+	private long timeoutMillis;
+
+	@Value("${catalog.stream.heartbeat-seconds:20}")
+	private long heartbeatSeconds;
+
+	/** Acima disso a retomada não é feita pelo stream: o cliente recebe "resync" e usa /catalog/changes */
+	@Value("${catalog.stream.max-replay:5000}")
+	private int maxReplay;
+
+	@Value("${catalog.stream.send-threads:4}")
+	private int sendThreads;
+
+	@Value("${catalog.stream.send-timeout-ms:10000}")
+	private long sendTimeoutMillis;
+
+	private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+	private ThreadPoolExecutor sender;
+	private ScheduledExecutorService heartbeat;
+
+	@PostConstruct
+	public void start() {
+		sender = new ThreadPoolExecutor(sendThreads, sendThreads, 0L, TimeUnit.MILLISECONDS, 
+				new LinkedBlockingQueue<>(), daemonThreads("catalog-stream-"));
+		heartbeat = Executors.newSingleThreadScheduledExecutor(daemonThreads("catalog-stream-heartbeat"));
+		//também detecta conexões mortas, que só falham ao escrever
+		heartbeat.scheduleWithFixedDelay(() -> subscribers.forEach(sub -> sub.offer(HEARTBEAT)),
+				heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+		long checkMillis = Math.max(1L, Math.min(1000L, sendTimeoutMillis / 2));
+		heartbeat.scheduleWithFixedDelay(this::dropStalledSenders, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+		registry.gauge("catalog.stream.subscribers", subscribers, Set::size);
+	}
+
+	@PreDestroy
+	public void stop() {
+		heartbeat.shutdownNow();
+		sender.shutdownNow();
+		subscribers.forEach(sub -> sub.emitter.complete());
+	}
+
+	/**
+	 * Nova inscrição. Com lastEventId, reenvia antes o que foi registrado depois dele;
+	 * o que fizer commit durante o reenvio fica na fila e é entregue em seguida
+	 */
+	public SseEmitter subscribe(Long lastEventId) {
+		SseEmitter emitter = createEmitter(timeoutMillis);
+		Subscriber sub = new Subscriber(emitter);
+
+		emitter.onCompletion(() -> subscribers.remove(sub));
+		emitter.onTimeout(() -> subscribers.remove(sub));
+		emitter.onError(ex -> subscribers.remove(sub));
+		subscribers.add(sub);
+
+		try {
+			if(lastEventId != null && !replay(sub, lastEventId)) {
+				return emitter;
+			}
+		}
+		catch(IOException e) {
+			subscribers.remove(sub);
+			emitter.completeWithError(e);
+			return emitter;
+		}
+
+		sub.goLive();
+		return emitter;
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onChangeRecorded(CatalogChangeRecordedEvent event) {
+		subscribers.forEach(sub -> sub.offer(event.getChange()));
+	}
+
+	SseEmitter createEmitter(long timeout) {
+		return new SseEmitter(timeout);
+	}
+
+	/** Desconecta os assinantes com envio parado há mais de sendTimeoutMillis */
+	private void dropStalledSenders() {
+		long now = System.nanoTime();
+		for(Subscriber sub : subscribers) {
+			long started = sub.sendStartedAt;
+			if(started != 0L && now - started > TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis)) {
+				sub.stall();
+			}
+		}
+	}
+
+	/** Uma thread a mais (ou a menos) no pool de envio: compensa as presas em escritas paradas */
+	private synchronized void resizeSender(int delta) {
+		if(delta > 0) {
+			sender.setMaximumPoolSize(sender.getMaximumPoolSize() + delta);
+			sender.setCorePoolSize(sender.getCorePoolSize() + delta);
+		}
+		else {
+			sender.setCorePoolSize(sender.getCorePoolSize() + delta);
+			sender.setMaximumPoolSize(sender.getMaximumPoolSize() + delta);
+		}
+	}
+
+	/** false quando o atraso passa de maxReplay e o cliente foi mandado para o /catalog/changes */
+	private boolean replay(Subscriber sub, Long lastEventId) throws IOException {
+		Long since = lastEventId;
+		int replayed = 0;
+		CatalogChangesDTO page;
+		do {
+			page = changeService.findChanges(since, CatalogChangeService.MAX_LIMIT);
+			for(CatalogChangeDTO change : page.getChanges()) {
+				if(replayed++ == maxReplay) {
+					subscribers.remove(sub);
+					sub.emitter.send(SseEmitter.event().name("resync").data(since));
+					sub.emitter.complete();
+					return false;
+				}
+				sub.replayed.add(change.getSequence());
+				sub.emitter.send(eventOf(change));
+				since = change.getSequence();
+			}
+		} while(page.isHasMore());
+		return true;
+	}
+
+	private static SseEmitter.SseEventBuilder eventOf(CatalogChangeDTO change) {
+		return SseEmitter.event()
+				.id(String.valueOf(change.getSequence()))
+				.name(change.getEntity())
+				.data(change, MediaType.APPLICATION_JSON);
+	}
+
+	private static ThreadFactory daemonThreads(String prefix) {
+		AtomicInteger count = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	private final class Subscriber {
+
+		private final SseEmitter emitter;
+		private final BlockingQueue<Object> queue;
+		private final AtomicBoolean draining = new AtomicBoolean();
+		private volatile boolean stalled;
+
+		/** System.nanoTime() do início do envio em andamento; 0 sem envio */
+		private volatile long sendStartedAt;
+		private volatile Thread sendingThread;
+
+		/** Sequências já enviadas na retomada, para não repetir as que também chegarem ao vivo */
+		private final Set<Long> replayed = ConcurrentHashMap.newKeySet();
+		private volatile boolean live;
+
+		private Subscriber(SseEmitter emitter) {
+			this.emitter = emitter;
+			this.queue = new ArrayBlockingQueue<>(bufferSize);
+		}
+
+		private void offer(Object item) {
+			if(!queue.offer(item)) {
+				if(item == HEARTBEAT) {
+					return;
+				}
+				//consumidor lento: desconecta em vez de acumular sem limite
+				subscribers.remove(this);
+				emitter.complete();
+				return;
+			}
+			if(live) {
+				scheduleDrain();
+			}
+		}
+
+		private void goLive() {
+			live = true;
+			scheduleDrain();
+		}
+
+		private void scheduleDrain() {
+			if(draining.compareAndSet(false, true)) {
+				sender.execute(this::drain);
+			}
+		}
+
+		private void drain() {
+			try {
+				Object item;
+				while(subscribers.contains(this) && (item = queue.poll()) != null) {
+					if(item == HEARTBEAT) {
+						send(SseEmitter.event().comment("ping"));
+					}
+					else if(!replayed.contains(((CatalogChangeDTO) item).getSequence())) {
+						send(eventOf((CatalogChangeDTO) item));
+					}
+				}
+			}
+			catch(IOException | IllegalStateException e) {
+				//conexão fechada pelo cliente ou emitter já completado
+				subscribers.remove(this);
+				queue.clear();
+			}
+			finally {
+				if(stalled) {
+					//a escrita parada enfim retornou (erro ou timeout de escrita do Tomcat):
+					//devolve a thread extra e fecha a conexão
+					queue.clear();
+					resizeSender(-1);
+					Thread.interrupted();
+					completeQuietly();
+					return;
+				}
+				draining.set(false);
+				if(!queue.isEmpty() && subscribers.contains(this)) {
+					scheduleDrain();
+				}
+			}
+		}
+
+		private void send(SseEmitter.SseEventBuilder event) throws IOException {
+			synchronized(this) {
+				sendingThread = Thread.currentThread();
+				sendStartedAt = System.nanoTime();
+			}
+			try {
+				emitter.send(event);
+			}
+			finally {
+				synchronized(this) {
+					sendStartedAt = 0L;
+					sendingThread = null;
+				}
+			}
+		}
+
+		/**
+		 * Envio parado: desconecta e repõe a thread do pool até a escrita retornar. Não completa
+		 * o emitter aqui: complete() espera o send em andamento (os dois sincronizam no emitter)
+		 * e prenderia a thread do heartbeat; quem completa é o drain quando a escrita retornar
+		 */
+		private void stall() {
+			synchronized(this) {
+				//só marca com o envio ainda em andamento: o drain passa pelo finally e desfaz o resize
+				if(stalled || sendStartedAt == 0L) {
+					return;
+				}
+				stalled = true;
+				resizeSender(1);
+				sendingThread.interrupt();
+			}
+			subscribers.remove(this);
+		}
+
+		private void completeQuietly() {
+			try {
+				emitter.complete();
+			}
+			catch(IllegalStateException e) {
+				//já completado
+			}
+		}
+	}
+}
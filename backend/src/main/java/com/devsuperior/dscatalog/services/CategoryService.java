@@ -2,23 +2,34 @@ package com.devsuperior.dscatalog.services;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
 import javax.persistence.EntityNotFoundException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.devsuperior.dscatalog.components.CategorySnapshot;
+import com.devsuperior.dscatalog.components.CategorySnapshot.Snapshot;
+import com.devsuperior.dscatalog.components.Versioned;
 import com.devsuperior.dscatalog.dto.CategoryDTO;
+import com.devsuperior.dscatalog.dto.CursorPageDTO;
 import com.devsuperior.dscatalog.entities.Category;
 import com.devsuperior.dscatalog.repositories.CategoryRepository;
+import com.devsuperior.dscatalog.services.events.CategoryChangedEvent;
+import com.devsuperior.dscatalog.services.exceptions.ConcurrentUpdateException;
 import com.devsuperior.dscatalog.services.exceptions.DatabaseException;
+import com.devsuperior.dscatalog.services.exceptions.PreconditionFailedException;
 import com.devsuperior.dscatalog.services.exceptions.ResourceNotFoundException;
+import com.devsuperior.dscatalog.services.pagination.KeysetCursor;
 
 @Service
 public class CategoryService {
@@ -26,17 +37,28 @@ public class CategoryService {
 	@Autowired
 	private CategoryRepository repository;
 	
-	@Transactional(readOnly = true) // ** importar do spring / readOnly melhora a performance não dando lock no bd
+	@Autowired
+	private ApplicationEventPublisher publisher;
+	
+	@Autowired
+	private CategorySnapshot snapshot;
+	
+	/** Servido pela cópia em memória, sem acesso ao banco */
 	public List<CategoryDTO> findAll() {
-		List<Category> list = repository.findAll();
-		List<CategoryDTO> dtos = 
-				list.stream().map(cat -> new CategoryDTO(cat))
-					.collect(Collectors.toList());
-		return dtos;
+		return snapshot.get().getCategories();
 	}
 	
+	/**
+	 * Servido pela cópia em memória; só vai ao banco se a ordenação 
+	 * pedida não for por id/name
+	 */
 	public Page<CategoryDTO> findAllPaged(Pageable pageable) {
 		
+		Snapshot categories = snapshot.get();
+		if(categories.canSort(pageable.getSort())) {
+			return categories.page(pageable);
+		}
+		
 		Page<Category> list = repository.findAll(pageable);
 		
 		Page<CategoryDTO> dtos = 
@@ -45,7 +67,47 @@ public class CategoryService {
 		return dtos;
 	}
 	
+	/** Mesma listagem paginada, mas sem o total; também servida pela cópia em memória */
+	public Slice<CategoryDTO> findAllSliced(Pageable pageable) {
+		
+		Snapshot categories = snapshot.get();
+		if(categories.canSort(pageable.getSort())) {
+			return categories.slice(pageable);
+		}
+		
+		return repository.findAllSliced(pageable).map(cat -> new CategoryDTO(cat));
+	}
+	
+	/** ETag das listagens de categorias (conteúdo da cópia em memória) */
+	public String findListETag() {
+		return snapshot.get().getETag();
+	}
+	
+	/** ETag de uma categoria, sem ir ao banco; null se ela não existir */
+	public String findETag(Long id) {
+		return snapshot.get().getETag(id);
+	}
+	
+	/** Listagem por cursor (keyset) ordenada por (name, id), servida pela cópia em memória */
+	public CursorPageDTO<CategoryDTO> findAllByCursor(String after, int size) {
+		
+		KeysetCursor cursor = KeysetCursor.decode(after);
+		
+		List<CategoryDTO> list = cursor == null
+				? snapshot.get().keysetPage(null, null, size + 1)
+				: snapshot.get().keysetPage(cursor.getName(), cursor.getId(), size + 1);
+		
+		return CursorPageDTO.of(list, size, 
+				cat -> new KeysetCursor(cat.getName(), cat.getId()),
+				Function.identity());
+	}
+	
 	public CategoryDTO findById(Long id) {
+		CategoryDTO cached = snapshot.get().findById(id);
+		if(cached != null) {
+			return cached;
+		}
+		
 		Optional<Category> catOpt = repository.findById(id);
 		return new CategoryDTO(
 					catOpt.orElseThrow(() -> new EntityNotFoundException("Categoria não encontrada"))
@@ -59,28 +121,50 @@ public class CategoryService {
 		cat = repository.save(cat);
 		
 		CategoryDTO dtoSalvo = new CategoryDTO(cat);
+		publisher.publishEvent(CategoryChangedEvent.saved(dtoSalvo));
 		
 		return dtoSalvo;
 	}
 
 	@Transactional
 	public CategoryDTO atualizar(Long id, CategoryDTO dto) {
+		return atualizar(id, dto, null).getValue();
+	}
+	
+	/** Mesmo controle otimista do ProductService.atualizar (If-Match opcional, @Version no flush) */
+	@Transactional
+	public Versioned<CategoryDTO> atualizar(Long id, CategoryDTO dto, String ifMatch) {
 		
 		try {
 			Category category = repository.getById(id);
+			if(!Versioned.matches(ifMatch, Versioned.etagOf(category.getId(), category.getVersion()))) {
+				throw new PreconditionFailedException("Category " + id + " was modified since it was read");
+			}
 			category.setName(dto.getName());
 			category = repository.save(category);
-			return new CategoryDTO(category);
+			repository.flush();
+			
+			CategoryDTO dtoSalvo = new CategoryDTO(category);
+			publisher.publishEvent(CategoryChangedEvent.saved(dtoSalvo));
+			return new Versioned<>(dtoSalvo, Versioned.etagOf(category.getId(), category.getVersion()));
 		}
 		catch(EntityNotFoundException ex) {
 			throw new ResourceNotFoundException("Id not found "+ id);
 		}
+		catch(ObjectOptimisticLockingFailureException ex) {
+			throw new ConcurrentUpdateException("Category " + id + " was modified concurrently");
+		}
 		
 	}
 
+	@Transactional
 	public void delete(Long id) {
 		try {
 			repository.deleteById(id);
+			//antecipa a violação de FK para dentro do try (senão ela só aparece no commit)
+			repository.flush();
+			
+			publisher.publishEvent(CategoryChangedEvent.deleted(id));
 		}
 		catch(EmptyResultDataAccessException ex) {
 			throw new ResourceNotFoundException("Id not found "+ id);
@@ -0,0 +1,319 @@
+package com.devsuperior.dscatalog.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.devsuperior.dscatalog.services.exceptions.InvalidRequestException;
+import com.devsuperior.dscatalog.services.exceptions.ServiceOverloadedException;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Exportação do catálogo completo (produtos + categorias) em NDJSON ou CSV.
+ * 
+ * Lê o banco com um cursor JDBC forward-only (fetch size configurável) e escreve
+ * cada produto direto no OutputStream assim que a sua última linha é lida:
+ * a memória usada não depende do tamanho do catálogo.
+ * 
+ * Cada exportação segura uma conexão do pool (cursor aberto) até o cliente terminar o
+ * download: no máximo catalog.export.max-concurrent rodam ao mesmo tempo, as demais
+ * recebem 503 em vez de esperar uma conexão
+ */
+@Service
+public class ProductExportService {
+
+	private static final String SQL = 
+			"SELECT p.id, p.name, p.description, p.price, p.img_url, p.date, "
+			+ "c.id AS category_id, c.name AS category_name "
+			+ "FROM tb_product p "
+			+ "LEFT JOIN tb_product_category pc ON pc.product_id = p.id "
+			+ "LEFT JOIN tb_category c ON c.id = pc.category_id "
+			+ "ORDER BY p.id, c.id";
+	
+	public enum ExportFormat {
+		NDJSON("application/x-ndjson", "ndjson"),
+		CSV("text/csv", "csv");
+		
+		private final String contentType;
+		private final String extension;
+		
+		ExportFormat(String contentType, String extension) {
+			this.contentType = contentType;
+			this.extension = extension;
+		}
+		
+		public String getContentType() {
+			return contentType;
+		}
+		
+		public String getExtension() {
+			return extension;
+		}
+		
+		public static ExportFormat of(String format) {
+			for(ExportFormat f : values()) {
+				if(f.extension.equalsIgnoreCase(format)) {
+					return f;
+				}
+			}
+			throw new InvalidRequestException("Unsupported export format: " + format);
+		}
+	}
+	
+	@Autowired
+	private DataSource dataSource;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	/** Abre a saída (definindo os headers da resposta) só depois de obtida a vaga */
+	@FunctionalInterface
+	public interface ExportTarget {
+		OutputStream open() throws IOException;
+	}
+	
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	
+	@Value("${catalog.export.fetch-size:500}")
+	private int fetchSize;
+	
+	@Value("${catalog.export.max-concurrent:2}")
+	private int maxConcurrent;
+	
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate transactionTemplate;
+	private Semaphore permits;
+	
+	@PostConstruct
+	void init() {
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.setFetchSize(fetchSize);
+		
+		//somente leitura: além de manter uma única conexão durante a leitura, desliga o
+		//autocommit, condição para o driver do PostgreSQL usar cursor no servidor
+		//(sem ela o fetch size é ignorado e o ResultSet inteiro vem para a memória)
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.setReadOnly(true);
+		
+		permits = new Semaphore(maxConcurrent);
+	}
+	
+	/**
+	 * A vaga é obtida antes da transação (que já pega a conexão) e antes de abrir a saída,
+	 * para o 503 sair com os headers de erro e não com os do arquivo
+	 */
+	public void export(ExportFormat format, ExportTarget target) throws IOException {
+		if(!permits.tryAcquire()) {
+			throw new ServiceOverloadedException("Too many exports in progress");
+		}
+		try {
+			OutputStream out = target.open();
+			transactionTemplate.executeWithoutResult(status -> {
+				try {
+					export(format, out);
+				}
+				catch(IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+		catch(UncheckedIOException e) {
+			throw e.getCause();
+		}
+		finally {
+			permits.release();
+		}
+	}
+	
+	private void export(ExportFormat format, OutputStream out) throws IOException {
+		
+		ExportWriter writer = format == ExportFormat.CSV 
+				? new CsvWriter(out)
+				: new NdjsonWriter(out);
+		
+		ExportRow row = new ExportRow();
+		
+		try {
+			jdbcTemplate.query(con -> con.prepareStatement(SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY),
+					(RowCallbackHandler) rs -> {
+						long id = rs.getLong("id");
+						//as linhas vêm ordenadas por produto: mudou o id, o anterior está completo
+						if(row.id == null || row.id != id) {
+							if(row.id != null) {
+								write(writer, row);
+							}
+							row.reset(rs);
+						}
+						long categoryId = rs.getLong("category_id");
+						if(!rs.wasNull()) {
+							row.categoryIds.add(categoryId);
+							row.categoryNames.add(rs.getString("category_name"));
+						}
+					});
+			if(row.id != null) {
+				write(writer, row);
+			}
+		}
+		catch(UncheckedIOException e) {
+			throw e.getCause();
+		}
+		
+		writer.close();
+	}
+	
+	private void write(ExportWriter writer, ExportRow row) {
+		try {
+			writer.write(row);
+		} 
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/** Produto em montagem; a mesma instância é reaproveitada a cada produto lido */
+	private static class ExportRow {
+		Long id;
+		String name;
+		String description;
+		Double price;
+		String imgUrl;
+		Instant date;
+		List<Long> categoryIds = new ArrayList<>();
+		List<String> categoryNames = new ArrayList<>();
+		
+		void reset(ResultSet rs) throws SQLException {
+			id = rs.getLong("id");
+			name = rs.getString("name");
+			description = rs.getString("description");
+			price = rs.getObject("price") == null ? null : rs.getDouble("price");
+			imgUrl = rs.getString("img_url");
+			Timestamp ts = rs.getTimestamp("date");
+			date = ts == null ? null : ts.toInstant();
+			categoryIds.clear();
+			categoryNames.clear();
+		}
+	}
+	
+	private interface ExportWriter {
+		void write(ExportRow row) throws IOException;
+		void close() throws IOException;
+	}
+	
+	/** Um objeto JSON por linha */
+	private class NdjsonWriter implements ExportWriter {
+		
+		private final JsonGenerator gen;
+		
+		NdjsonWriter(OutputStream out) throws IOException {
+			gen = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+			gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			gen.setRootValueSeparator(null);
+		}
+		
+		@Override
+		public void write(ExportRow row) throws IOException {
+			gen.writeStartObject();
+			gen.writeNumberField("id", row.id);
+			gen.writeStringField("name", row.name);
+			gen.writeStringField("description", row.description);
+			if(row.price == null) {
+				gen.writeNullField("price");
+			} else {
+				gen.writeNumberField("price", row.price);
+			}
+			gen.writeStringField("imgUrl", row.imgUrl);
+			gen.writeStringField("date", row.date == null ? null : row.date.toString());
+			gen.writeArrayFieldStart("categories");
+			for(int i = 0; i < row.categoryIds.size(); i++) {
+				gen.writeStartObject();
+				gen.writeNumberField("id", row.categoryIds.get(i));
+				gen.writeStringField("name", row.categoryNames.get(i));
+				gen.writeEndObject();
+			}
+			gen.writeEndArray();
+			gen.writeEndObject();
+			gen.writeRaw('\n');
+		}
+		
+		@Override
+		public void close() throws IOException {
+			gen.close();
+		}
+	}
+	
+	/** CSV (RFC 4180); as categorias de cada produto vão separadas por '|' */
+	private static class CsvWriter implements ExportWriter {
+		
+		private final Writer out;
+		
+		CsvWriter(OutputStream out) throws IOException {
+			this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+			this.out.write("id,name,description,price,imgUrl,date,categoryIds,categoryNames\r\n");
+		}
+		
+		@Override
+		public void write(ExportRow row) throws IOException {
+			out.write(String.valueOf(row.id));
+			out.write(',');
+			field(row.name);
+			out.write(',');
+			field(row.description);
+			out.write(',');
+			field(row.price == null ? null : String.valueOf(row.price));
+			out.write(',');
+			field(row.imgUrl);
+			out.write(',');
+			field(row.date == null ? null : row.date.toString());
+			out.write(',');
+			field(row.categoryIds.stream().map(String::valueOf).collect(Collectors.joining("|")));
+			out.write(',');
+			field(String.join("|", row.categoryNames));
+			out.write("\r\n");
+		}
+		
+		private void field(String value) throws IOException {
+			if(value == null) {
+				return;
+			}
+			if(value.indexOf(',') < 0 && value.indexOf('"') < 0 
+					&& value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+				out.write(value);
+				return;
+			}
+			out.write('"');
+			out.write(value.replace("\"", "\"\""));
+			out.write('"');
+		}
+		
+		@Override
+		public void close() throws IOException {
+			out.flush();
+		}
+	}
+}
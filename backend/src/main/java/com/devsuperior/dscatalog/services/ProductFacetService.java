@@ -0,0 +1,109 @@
+package com.devsuperior.dscatalog.services;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.devsuperior.dscatalog.components.CatalogVersion;
+import com.devsuperior.dscatalog.components.CategorySnapshot;
+import com.devsuperior.dscatalog.components.ProductFilterIndex;
+import com.devsuperior.dscatalog.components.ProductFilterIndex.FacetCounts;
+import com.devsuperior.dscatalog.components.ProductSearchIndex;
+import com.devsuperior.dscatalog.dto.CategoryDTO;
+import com.devsuperior.dscatalog.dto.ProductFacetsDTO;
+import com.devsuperior.dscatalog.dto.ProductFacetsDTO.CategoryFacet;
+import com.devsuperior.dscatalog.dto.ProductFacetsDTO.PriceBandFacet;
+import com.devsuperior.dscatalog.services.filter.ProductFilter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Facetas da navegação (contagem por categoria e por faixa de preço) calculadas
+ * sobre os índices em memória, sem consultas ao banco.
+ * 
+ * O resultado fica em cache por poucos segundos; a versão do catálogo faz parte
+ * da chave, então qualquer escrita já invalida as entradas antigas
+ */
+@Service
+public class ProductFacetService {
+
+	@Autowired
+	private ProductFilterIndex filterIndex;
+	
+	@Autowired
+	private ProductSearchIndex searchIndex;
+	
+	@Autowired
+	private CategorySnapshot categorySnapshot;
+	
+	@Autowired
+	private CatalogVersion catalogVersion;
+	
+	@Autowired
+	private MeterRegistry registry;
+	
+	/** Limites inferiores das faixas de preço, em ordem crescente */
+	@Value("${catalog.facets.price-bands:0,100,500,1000,5000}")
+	private double[] priceBands;
+	
+	@Value("${catalog.facets.cache-ttl-seconds:30}")
+	private long cacheTtlSeconds;
+	
+	private Cache<String, ProductFacetsDTO> cache;
+	
+	@PostConstruct
+	void init() {
+		Arrays.sort(priceBands);
+		cache = Caffeine.newBuilder()
+				.maximumSize(1000)
+				.expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(registry, cache, "productFacets");
+	}
+	
+	public ProductFacetsDTO facets(String query, ProductFilter filter) {
+		return cache.get(cacheKey(query, filter), key -> compute(query, filter));
+	}
+	
+	private ProductFacetsDTO compute(String query, ProductFilter filter) {
+		RoaringBitmap products = filterIndex.filter(filter);
+		if(query != null && !query.isBlank()) {
+			products.and(searchIndex.matching(query));
+		}
+		
+		List<CategoryDTO> categories = categorySnapshot.get().getCategories();
+		FacetCounts counts = filterIndex.facets(products, 
+				categories.stream().map(CategoryDTO::getId).collect(Collectors.toList()), priceBands);
+		
+		ProductFacetsDTO dto = new ProductFacetsDTO(products.getLongCardinality());
+		for(CategoryDTO cat : categories) {
+			dto.getCategories().add(new CategoryFacet(cat.getId(), cat.getName(), counts.getCategoryCount(cat.getId())));
+		}
+		for(int i = 0; i < priceBands.length; i++) {
+			Double max = i + 1 < priceBands.length ? priceBands[i + 1] : null;
+			dto.getPriceBands().add(new PriceBandFacet(priceBands[i], max, counts.getPriceBandCount(i)));
+		}
+		return dto;
+	}
+	
+	private String cacheKey(String query, ProductFilter filter) {
+		String terms = query == null ? "" : String.join(" ", ProductSearchIndex.tokenize(query));
+		return catalogVersion.currentETag() 
+				+ "|" + terms
+				+ "|" + filter.getCategories().getCategoryIds() + (filter.getCategories().isMatchAll() ? "all" : "any")
+				+ "|" + filter.getMinPrice() + "|" + filter.getMaxPrice()
+				+ "|" + filter.getFrom() + "|" + filter.getTo();
+	}
+}
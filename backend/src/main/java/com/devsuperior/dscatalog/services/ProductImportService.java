@@ -0,0 +1,291 @@
+package com.devsuperior.dscatalog.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.devsuperior.dscatalog.components.CategorySnapshot;
+import com.devsuperior.dscatalog.dto.CategoryDTO;
+import com.devsuperior.dscatalog.dto.ProductDTO;
+import com.devsuperior.dscatalog.dto.ProductImportErrorDTO;
+import com.devsuperior.dscatalog.dto.ProductImportResultDTO;
+import com.devsuperior.dscatalog.entities.Product;
+import com.devsuperior.dscatalog.resources.exceptions.FieldMessage;
+import com.devsuperior.dscatalog.services.events.ProductChangedEvent;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Importação em lote de produtos (array JSON ou NDJSON lidos em streaming).
+ * 
+ * Cada linha é validada com as mesmas constraints do ProductDTO e as categorias
+ * são conferidas no CategorySnapshot (sem ida ao banco). As linhas válidas são
+ * gravadas em blocos: um INSERT em batch JDBC para tb_product e outro para
+ * tb_product_category, cada bloco na sua própria transação. Um bloco recusado
+ * pelo banco é refeito em metades até isolar as linhas com erro.
+ * 
+ * Os ids vêm da mesma sequence usada pelo Hibernate: cada nextval reserva
+ * Product.ID_ALLOCATION_SIZE ids (pooled-lo), então não há colisão com as
+ * inserções feitas via JPA
+ */
+@Service
+public class ProductImportService {
+
+	private static final Logger logger = LoggerFactory.getLogger(ProductImportService.class);
+	
+	private static final String INSERT_PRODUCT = 
+			"INSERT INTO tb_product (id, name, description, price, img_url, date, created_at, updated_at) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+	
+	private static final String INSERT_PRODUCT_CATEGORY = 
+			"INSERT INTO tb_product_category (product_id, category_id) VALUES (?, ?)";
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Autowired
+	private Validator validator;
+	
+	@Autowired
+	private CategorySnapshot categorySnapshot;
+	
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	
+	@Autowired
+	private ApplicationEventPublisher publisher;
+	
+	@Value("${catalog.import.batch-size:1000}")
+	private int batchSize;
+	
+	@Value("${catalog.import.max-reported-errors:1000}")
+	private int maxReportedErrors;
+	
+	private TransactionTemplate transactionTemplate;
+	
+	private String nextIdBlockSql;
+	
+	@PostConstruct
+	void init() {
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		
+		//o SQL de nextval varia entre H2 e PostgreSQL: usa o mesmo dialeto do Hibernate
+		Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+		nextIdBlockSql = dialect.getSequenceNextValString(Product.ID_SEQUENCE);
+	}
+	
+	public ProductImportResultDTO importar(InputStream in) throws IOException {
+		
+		ProductImportResultDTO result = new ProductImportResultDTO();
+		List<ProductDTO> chunk = new ArrayList<>(batchSize);
+		List<Long> chunkRows = new ArrayList<>(batchSize);
+		
+		try(MappingIterator<ProductDTO> it = objectMapper.readerFor(ProductDTO.class).readValues(in)) {
+			long row = 0;
+			while(true) {
+				ProductDTO dto;
+				try {
+					if(!it.hasNextValue()) {
+						break;
+					}
+					row++;
+					dto = it.nextValue();
+				}
+				catch(JsonParseException e) {
+					//JSON malformado: não há como continuar a leitura a partir daqui
+					reject(result, row, new FieldMessage("json", e.getOriginalMessage()));
+					break;
+				}
+				catch(JsonMappingException e) {
+					//tipo inválido em algum campo: o iterator pula o objeto e segue
+					reject(result, row, new FieldMessage(fieldOf(e), e.getOriginalMessage()));
+					continue;
+				}
+				
+				List<FieldMessage> errors = validate(dto);
+				if(!errors.isEmpty()) {
+					reject(result, row, errors);
+					continue;
+				}
+				
+				chunk.add(dto);
+				chunkRows.add(row);
+				if(chunk.size() == batchSize) {
+					flush(chunk, chunkRows, result);
+				}
+			}
+			result.setReceived(row);
+		}
+		
+		if(!chunk.isEmpty()) {
+			flush(chunk, chunkRows, result);
+		}
+		
+		return result;
+	}
+	
+	private List<FieldMessage> validate(ProductDTO dto) {
+		List<FieldMessage> errors = new ArrayList<>();
+		
+		for(ConstraintViolation<ProductDTO> v : validator.validate(dto)) {
+			errors.add(new FieldMessage(v.getPropertyPath().toString(), v.getMessage()));
+		}
+		
+		//categorias: ids distintos e existentes, já no formato que será gravado
+		Set<Long> ids = new LinkedHashSet<>();
+		List<CategoryDTO> categories = new ArrayList<>();
+		for(CategoryDTO cat : dto.getCategories()) {
+			CategoryDTO existing = cat.getId() == null ? null : categorySnapshot.get().findById(cat.getId());
+			if(existing == null) {
+				errors.add(new FieldMessage("categories", "Categoria inexistente: " + cat.getId()));
+			}
+			else if(ids.add(existing.getId())) {
+				categories.add(new CategoryDTO(existing.getId(), existing.getName()));
+			}
+		}
+		dto.getCategories().clear();
+		dto.getCategories().addAll(categories);
+		
+		return errors;
+	}
+	
+	private void flush(List<ProductDTO> chunk, List<Long> chunkRows, ProductImportResultDTO result) {
+		write(chunk, chunkRows, result);
+		chunk.clear();
+		chunkRows.clear();
+	}
+	
+	/**
+	 * Grava o bloco numa transação. Se o banco recusar, divide o bloco ao meio e tenta
+	 * cada metade na sua própria transação, até isolar as linhas que de fato falham:
+	 * só elas são rejeitadas
+	 */
+	private void write(List<ProductDTO> chunk, List<Long> chunkRows, ProductImportResultDTO result) {
+		try {
+			transactionTemplate.executeWithoutResult(status -> {
+				insert(chunk);
+				//listeners (índice de busca, caches) só recebem após o commit do bloco
+				chunk.forEach(dto -> publisher.publishEvent(ProductChangedEvent.saved(dto)));
+			});
+			result.setImported(result.getImported() + chunk.size());
+		}
+		catch(DataAccessException e) {
+			if(chunk.size() == 1) {
+				logger.warn("Falha ao gravar a linha {} na importação", chunkRows.get(0), e);
+				reject(result, chunkRows.get(0), new FieldMessage("database", e.getMostSpecificCause().getMessage()));
+				return;
+			}
+			int half = chunk.size() / 2;
+			write(chunk.subList(0, half), chunkRows.subList(0, half), result);
+			write(chunk.subList(half, chunk.size()), chunkRows.subList(half, chunk.size()), result);
+		}
+	}
+	
+	private void insert(List<ProductDTO> chunk) {
+		jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+			Timestamp now = Timestamp.from(Instant.now());
+			
+			//um nextval a cada ID_ALLOCATION_SIZE produtos
+			try(PreparedStatement seq = con.prepareStatement(nextIdBlockSql)) {
+				long next = 0;
+				long limit = 0;
+				for(ProductDTO dto : chunk) {
+					if(next == limit) {
+						try(ResultSet rs = seq.executeQuery()) {
+							rs.next();
+							next = rs.getLong(1);
+						}
+						limit = next + Product.ID_ALLOCATION_SIZE;
+					}
+					dto.setId(next++);
+				}
+			}
+			
+			try(PreparedStatement ps = con.prepareStatement(INSERT_PRODUCT)) {
+				for(ProductDTO dto : chunk) {
+					ps.setLong(1, dto.getId());
+					ps.setString(2, dto.getName());
+					ps.setString(3, dto.getDescription());
+					ps.setObject(4, dto.getPrice(), Types.DOUBLE);
+					ps.setString(5, dto.getImgUrl());
+					ps.setTimestamp(6, dto.getDate() == null ? null : Timestamp.from(dto.getDate()));
+					ps.setTimestamp(7, now);
+					ps.setTimestamp(8, now);
+					ps.addBatch();
+				}
+				ps.executeBatch();
+			}
+			
+			try(PreparedStatement ps = con.prepareStatement(INSERT_PRODUCT_CATEGORY)) {
+				int pending = 0;
+				for(ProductDTO dto : chunk) {
+					for(CategoryDTO cat : dto.getCategories()) {
+						ps.setLong(1, dto.getId());
+						ps.setLong(2, cat.getId());
+						ps.addBatch();
+						if(++pending == batchSize) {
+							ps.executeBatch();
+							pending = 0;
+						}
+					}
+				}
+				if(pending > 0) {
+					ps.executeBatch();
+				}
+			}
+			return null;
+		});
+	}
+	
+	private void reject(ProductImportResultDTO result, long row, FieldMessage error) {
+		List<FieldMessage> errors = new ArrayList<>();
+		errors.add(error);
+		reject(result, row, errors);
+	}
+	
+	private void reject(ProductImportResultDTO result, long row, List<FieldMessage> errors) {
+		result.setRejected(result.getRejected() + 1);
+		if(result.getErrors().size() < maxReportedErrors) {
+			result.getErrors().add(new ProductImportErrorDTO(row, errors));
+		}
+	}
+	
+	private static String fieldOf(JsonMappingException e) {
+		return e.getPath().isEmpty() ? "json" : e.getPath().get(e.getPath().size() - 1).getFieldName();
+	}
+}
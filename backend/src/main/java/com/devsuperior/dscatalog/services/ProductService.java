@@ -1,37 +1,96 @@
 package com.devsuperior.dscatalog.services;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import javax.persistence.EntityNotFoundException;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
 
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.devsuperior.dscatalog.components.CatalogVersion;
+import com.devsuperior.dscatalog.components.ProductDetailCache;
+import com.devsuperior.dscatalog.components.ProductFilterIndex;
+import com.devsuperior.dscatalog.components.ProductSearchIndex;
+import com.devsuperior.dscatalog.components.ProductSearchIndex.SearchResult;
+import com.devsuperior.dscatalog.components.Versioned;
 import com.devsuperior.dscatalog.dto.CategoryDTO;
+import com.devsuperior.dscatalog.dto.CursorPageDTO;
+import com.devsuperior.dscatalog.dto.ProductBatchDTO;
 import com.devsuperior.dscatalog.dto.ProductDTO;
+import com.devsuperior.dscatalog.dto.ProductSummaryDTO;
 import com.devsuperior.dscatalog.entities.Category;
 import com.devsuperior.dscatalog.entities.Product;
 import com.devsuperior.dscatalog.repositories.CategoryRepository;
 import com.devsuperior.dscatalog.repositories.ProductRepository;
+import com.devsuperior.dscatalog.services.events.ProductChangedEvent;
+import com.devsuperior.dscatalog.services.exceptions.ConcurrentUpdateException;
 import com.devsuperior.dscatalog.services.exceptions.DatabaseException;
+import com.devsuperior.dscatalog.services.exceptions.InvalidRequestException;
+import com.devsuperior.dscatalog.services.exceptions.PreconditionFailedException;
 import com.devsuperior.dscatalog.services.exceptions.ResourceNotFoundException;
+import com.devsuperior.dscatalog.services.filter.CategoryFilter;
+import com.devsuperior.dscatalog.services.filter.ProductFilter;
+import com.devsuperior.dscatalog.services.pagination.KeysetCursor;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 @Service
 public class ProductService {
 
+	/** Campos aceitos no PATCH; id e datas de controle não são alteráveis */
+	private static final Set<String> PATCHABLE_FIELDS = Set.of("name", "description", "price", "imgUrl", "date", "categories");
+
 	@Autowired
 	private ProductRepository repository;
 	
 	@Autowired
 	private CategoryRepository categoryRepository;
 	
+	@Autowired
+	private ProductSearchIndex searchIndex;
+	
+	@Autowired
+	private ProductFilterIndex filterIndex;
+	
+	@Autowired
+	private ProductDetailCache productCache;
+	
+	@Autowired
+	private CatalogVersion catalogVersion;
+	
+	@Autowired
+	private ApplicationEventPublisher publisher;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Autowired
+	private Validator validator;
+	
 	@Transactional(readOnly = true) // ** importar do spring / readOnly melhora a performance não dando lock no bd
 	public List<ProductDTO> findAll() {
 		List<Product> list = repository.findAll();
@@ -50,16 +109,226 @@ public class ProductService {
 		
 		return dtos;
 	}
+	
+	/** ETag das listagens de produtos, obtido sem consultar o banco */
+	public String findListETag() {
+		return catalogVersion.currentETag();
+	}
+	
+	/**
+	 * Listagem paginada já com as categorias de cada produto:
+	 * uma consulta para a página e outra para as categorias de todos os itens dela
+	 */
+	@Transactional(readOnly = true)
+	public Page<ProductDTO> findAllPagedWithCategories(Pageable pageRequest) {
+		
+		Page<Product> list = repository.findAll(pageRequest);
+		
+		if(list.hasContent()) {
+			repository.findProductsWithCategories(list.getContent());
+		}
+		
+		return list.map(prod -> new ProductDTO(prod, prod.getCategories()));
+	}
+
+	@Transactional(readOnly = true)
+	public Slice<ProductSummaryDTO> findAllSummaries(Pageable pageRequest, boolean withTotal) {
+		return findAllSummaries(pageRequest, withTotal, CategoryFilter.none());
+	}
+	
+	/** Listagem resumida (sem descrição nem categorias), montada direto pela consulta */
+	@Transactional(readOnly = true)
+	public Slice<ProductSummaryDTO> findAllSummaries(Pageable pageRequest, boolean withTotal, CategoryFilter filter) {
+		if(filter.isEmpty()) {
+			return withTotal 
+					? repository.findAllSummaries(pageRequest)
+					: repository.findAllSummariesSliced(pageRequest);
+		}
+		return withTotal
+				? repository.findSummariesByCategories(filter.getCategoryIds(), filter.getMinMatches(), pageRequest)
+				: repository.findSummariesByCategoriesSliced(filter.getCategoryIds(), filter.getMinMatches(), pageRequest);
+	}
+	
+	@Transactional(readOnly = true)
+	public Slice<ProductDTO> findAllSliced(Pageable pageRequest, boolean withCategories) {
+		return findAllSliced(pageRequest, withCategories, CategoryFilter.none());
+	}
+	
+	/** Mesma listagem paginada, mas sem o total (sem consulta de count) */
+	@Transactional(readOnly = true)
+	public Slice<ProductDTO> findAllSliced(Pageable pageRequest, boolean withCategories, CategoryFilter filter) {
+		
+		Slice<Product> list = filter.isEmpty()
+				? repository.findAllSliced(pageRequest)
+				: repository.findSlicedByCategories(filter.getCategoryIds(), filter.getMinMatches(), pageRequest);
+		
+		if(withCategories && list.hasContent()) {
+			repository.findProductsWithCategories(list.getContent());
+		}
+		
+		return list.map(prod -> withCategories ? new ProductDTO(prod, prod.getCategories()) : new ProductDTO(prod));
+	}
+	
+	/** Listagem paginada apenas dos produtos das categorias do filtro */
+	@Transactional(readOnly = true)
+	public Page<ProductDTO> findAllPagedByCategories(CategoryFilter filter, Pageable pageRequest, boolean withCategories) {
+		
+		Page<Product> list = repository.findByCategories(filter.getCategoryIds(), filter.getMinMatches(), pageRequest);
+		
+		if(withCategories && list.hasContent()) {
+			repository.findProductsWithCategories(list.getContent());
+		}
+		
+		return list.map(prod -> withCategories ? new ProductDTO(prod, prod.getCategories()) : new ProductDTO(prod));
+	}
+	
+	@Transactional(readOnly = true)
+	public CursorPageDTO<ProductDTO> findAllByCursor(String after, int size, boolean withCategories) {
+		return findAllByCursor(after, size, withCategories, CategoryFilter.none());
+	}
+	
+	/**
+	 * Listagem por cursor (keyset) ordenada por (name, id): busca size + 1 linhas
+	 * apenas para saber se existe próxima página, sem consulta de count
+	 */
+	@Transactional(readOnly = true)
+	public CursorPageDTO<ProductDTO> findAllByCursor(String after, int size, boolean withCategories, CategoryFilter filter) {
+		
+		KeysetCursor cursor = KeysetCursor.decode(after);
+		PageRequest limit = PageRequest.of(0, size + 1);
+		
+		List<Product> list;
+		if(filter.isEmpty()) {
+			list = cursor == null
+					? repository.findFirstKeysetPage(limit)
+					: repository.findKeysetPageAfter(cursor.getName(), cursor.getId(), limit);
+		}
+		else {
+			list = cursor == null
+					? repository.findFirstKeysetPageByCategories(filter.getCategoryIds(), filter.getMinMatches(), limit)
+					: repository.findKeysetPageAfterByCategories(filter.getCategoryIds(), filter.getMinMatches(), 
+							cursor.getName(), cursor.getId(), limit);
+		}
+		
+		if(withCategories && !list.isEmpty()) {
+			repository.findProductsWithCategories(list);
+		}
+		
+		return CursorPageDTO.of(list, size, 
+				prod -> new KeysetCursor(prod.getName(), prod.getId()),
+				prod -> withCategories ? new ProductDTO(prod, prod.getCategories()) : new ProductDTO(prod));
+	}
 
+	/**
+	 * Busca textual no índice em memória; apenas os produtos da página
+	 * são carregados do banco, na ordem de relevância
+	 */
 	@Transactional(readOnly = true)
+	public Page<ProductDTO> search(String query, Pageable pageRequest) {
+		
+		SearchResult result = searchIndex.search(query, pageRequest.getPageNumber(), pageRequest.getPageSize());
+		
+		Map<Long, Product> found = repository.findAllById(result.getIds()).stream()
+				.collect(Collectors.toMap(Product::getId, Function.identity()));
+		
+		List<ProductDTO> dtos = result.getIds().stream()
+				.filter(found::containsKey)
+				.map(id -> new ProductDTO(found.get(id)))
+				.collect(Collectors.toList());
+		
+		return new PageImpl<>(dtos, pageRequest, result.getTotal());
+	}
+
+	/**
+	 * Navegação facetada: o filtro é resolvido no índice de bitmaps (ordem por id)
+	 * e apenas os produtos da página são carregados do banco
+	 */
+	@Transactional(readOnly = true)
+	public Page<ProductDTO> filter(ProductFilter filter, Pageable pageRequest, boolean withCategories) {
+		
+		RoaringBitmap matches = filterIndex.filter(filter);
+		List<Long> ids = ProductFilterIndex.page(matches, pageRequest.getPageNumber(), pageRequest.getPageSize());
+		
+		List<Product> products = ids.isEmpty() ? List.of()
+				: withCategories 
+					? repository.findAllWithCategoriesByIdIn(ids) 
+					: repository.findAllById(ids);
+		Map<Long, Product> found = products.stream()
+				.collect(Collectors.toMap(Product::getId, Function.identity()));
+		
+		List<ProductDTO> dtos = ids.stream()
+				.filter(found::containsKey)
+				.map(found::get)
+				.map(prod -> withCategories ? new ProductDTO(prod, prod.getCategories()) : new ProductDTO(prod))
+				.collect(Collectors.toList());
+		
+		return new PageImpl<>(dtos, pageRequest, matches.getLongCardinality());
+	}
+	
+	/**
+	 * Servido pelo cache de detalhe; em caso de falta, uma única consulta traz
+	 * o produto com as categorias. Sem @Transactional para que um acerto no cache
+	 * não abra transação nem ocupe conexão do pool
+	 */
 	public ProductDTO findById(Long id) {
-		Optional<Product> prodOpt = repository.findById(id);
-		Product entity = prodOpt.orElseThrow(() -> new EntityNotFoundException("Produto não encontrado"));
-		System.out.println(entity.getCategories().size());
-		return new ProductDTO(
-					entity,				
-					entity.getCategories()
-				);
+		return findVersionedById(id).getValue();
+	}
+	
+	/** Produto e o ETag da versão carregada, obtidos na mesma leitura */
+	public Versioned<ProductDTO> findVersionedById(Long id) {
+		return productCache.get(id, key -> {
+			Optional<Product> prodOpt = repository.findById(key);
+			Product entity = prodOpt.orElseThrow(() -> new EntityNotFoundException("Produto não encontrado"));
+			ProductDTO dto = new ProductDTO(
+						entity,				
+						entity.getCategories()
+					);
+			return new Versioned<>(dto, Versioned.etagOf(entity));
+		});
+	}
+	
+	/**
+	 * Vários produtos por id: primeiro o cache de detalhe, depois uma única consulta
+	 * (com as categorias) para os que faltaram, que passam a ficar em cache.
+	 * Mantém a ordem pedida (ids repetidos aparecem uma vez) e lista os inexistentes
+	 */
+	@Transactional(readOnly = true)
+	public ProductBatchDTO findAllByIds(List<Long> ids) {
+		Set<Long> distinctIds = new LinkedHashSet<>(ids);
+		Map<Long, ProductDTO> found = new HashMap<>();
+		List<Long> misses = new ArrayList<>();
+		
+		for(Long id : distinctIds) {
+			Versioned<ProductDTO> cached = productCache.getIfPresent(id);
+			if(cached != null) {
+				found.put(id, cached.getValue());
+			} else {
+				misses.add(id);
+			}
+		}
+		
+		if(!misses.isEmpty()) {
+			//lida antes da consulta: uma escrita que fizer commit no meio impede o put
+			long generation = productCache.generation();
+			for(Product entity : repository.findAllWithCategoriesByIdIn(misses)) {
+				ProductDTO dto = new ProductDTO(entity, entity.getCategories());
+				productCache.putIfUnchanged(entity.getId(), 
+						new Versioned<>(dto, Versioned.etagOf(entity)), generation);
+				found.put(entity.getId(), dto);
+			}
+		}
+		
+		List<ProductDTO> content = new ArrayList<>(found.size());
+		List<Long> missing = new ArrayList<>();
+		for(Long id : distinctIds) {
+			ProductDTO dto = found.get(id);
+			if(dto != null) {
+				content.add(dto);
+			} else {
+				missing.add(id);
+			}
+		}
+		return new ProductBatchDTO(content, missing);
 	}
 	
 	@Transactional
@@ -68,6 +337,8 @@ public class ProductService {
 		dtoToEntity(dto, prod);
 		prod = repository.save(prod);
 		
+		publisher.publishEvent(ProductChangedEvent.saved(new ProductDTO(prod, prod.getCategories())));
+		
 		ProductDTO dtoSalvo = new ProductDTO(prod);
 		
 		return dtoSalvo;
@@ -76,20 +347,132 @@ public class ProductService {
 
 	@Transactional
 	public ProductDTO atualizar(Long id, ProductDTO dto) {
+		return atualizar(id, dto, null).getValue();
+	}
+	
+	/**
+	 * Atualização com controle otimista (@Version). ifMatch (ETag do GET) é opcional:
+	 * se informado e a versão atual for outra, lança PreconditionFailedException.
+	 * Uma gravação concorrente detectada no flush vira ConcurrentUpdateException
+	 */
+	@Transactional
+	public Versioned<ProductDTO> atualizar(Long id, ProductDTO dto, String ifMatch) {
 		try {
 			Product prod = repository.getById(id);
+			if(!Versioned.matches(ifMatch, Versioned.etagOf(prod))) {
+				throw new PreconditionFailedException("Product " + id + " was modified since it was read");
+			}
 			dtoToEntity(dto, prod);
+			prod.markUpdated();
 			prod = repository.save(prod);
-			return new ProductDTO(prod);
+			//incrementa a versão agora e antecipa o conflito para dentro do try
+			repository.flush();
+			
+			publisher.publishEvent(ProductChangedEvent.saved(new ProductDTO(prod, prod.getCategories())));
+			
+			return new Versioned<>(new ProductDTO(prod), Versioned.etagOf(prod));
+		}
+		catch(EntityNotFoundException ex) {
+			throw new ResourceNotFoundException("Id not found "+ id);
+		}
+		catch(ObjectOptimisticLockingFailureException ex) {
+			throw new ConcurrentUpdateException("Product " + id + " was modified concurrently");
+		}
+	}
+
+	/**
+	 * Atualização parcial (JSON Merge Patch, RFC 7396): só os campos presentes são
+	 * alterados e, com o @DynamicUpdate do Product, só eles entram no UPDATE.
+	 * As categorias só são tocadas se vierem no patch, e aí somente a diferença
+	 */
+	@Transactional
+	public Versioned<ProductDTO> patch(Long id, JsonNode patch, String ifMatch) {
+		if(patch == null || !patch.isObject()) {
+			throw new InvalidRequestException("Merge patch must be a JSON object");
+		}
+		patch.fieldNames().forEachRemaining(field -> {
+			if(!PATCHABLE_FIELDS.contains(field)) {
+				throw new InvalidRequestException("Field cannot be patched: " + field);
+			}
+		});
+		
+		try {
+			Product prod = repository.getById(id);
+			if(!Versioned.matches(ifMatch, Versioned.etagOf(prod))) {
+				throw new PreconditionFailedException("Product " + id + " was modified since it was read");
+			}
+			
+			//valida o resultado do patch com as mesmas regras do PUT
+			ObjectNode fields = ((ObjectNode) patch).deepCopy();
+			JsonNode categories = fields.remove("categories");
+			ProductDTO patched = objectMapper.readerForUpdating(new ProductDTO(prod)).readValue(fields);
+			Set<ConstraintViolation<ProductDTO>> violations = validator.validate(patched);
+			if(!violations.isEmpty()) {
+				throw new ConstraintViolationException(violations);
+			}
+			
+			if(fields.has("name")) {
+				prod.setName(patched.getName());
+			}
+			if(fields.has("description")) {
+				prod.setDescription(patched.getDescription());
+			}
+			if(fields.has("price")) {
+				prod.setPrice(patched.getPrice());
+			}
+			if(fields.has("imgUrl")) {
+				prod.setImgUrl(patched.getImgUrl());
+			}
+			if(fields.has("date")) {
+				prod.setDate(patched.getDate());
+			}
+			if(categories != null) {
+				applyCategories(categoryIdsOf(categories), prod);
+			}
+			prod.markUpdated();
+			repository.flush();
+			
+			publisher.publishEvent(ProductChangedEvent.saved(new ProductDTO(prod, prod.getCategories())));
+			
+			return new Versioned<>(new ProductDTO(prod), Versioned.etagOf(prod));
 		}
 		catch(EntityNotFoundException ex) {
 			throw new ResourceNotFoundException("Id not found "+ id);
 		}
+		catch(ObjectOptimisticLockingFailureException ex) {
+			throw new ConcurrentUpdateException("Product " + id + " was modified concurrently");
+		}
+		catch(IOException ex) {
+			throw new InvalidRequestException("Invalid merge patch: " + ex.getMessage());
+		}
+	}
+	
+	/** null no merge patch remove o valor: aqui, deixa o produto sem categorias */
+	private static List<Long> categoryIdsOf(JsonNode categories) {
+		if(categories.isNull()) {
+			return List.of();
+		}
+		if(!categories.isArray()) {
+			throw new InvalidRequestException("categories must be an array");
+		}
+		List<Long> ids = new ArrayList<>();
+		for(JsonNode cat : categories) {
+			if(!cat.path("id").canConvertToLong()) {
+				throw new InvalidRequestException("Each category must have a numeric id");
+			}
+			ids.add(cat.get("id").asLong());
+		}
+		return ids;
 	}
 
+	@Transactional
 	public void delete(Long id) {
 		try {
 			repository.deleteById(id);
+			//antecipa a violação de FK para dentro do try (senão ela só aparece no commit)
+			repository.flush();
+			
+			publisher.publishEvent(ProductChangedEvent.deleted(id));
 		}
 		catch(EmptyResultDataAccessException ex) {
 			throw new ResourceNotFoundException("Id not found "+ id);
@@ -107,11 +490,17 @@ public class ProductService {
 		entity.setDate(dto.getDate());
 		entity.setImgUrl(dto.getImgUrl());
 		
-		entity.getCategories().clear();
-		for(CategoryDTO catDto : dto.getCategories() ) {
-			Category category = categoryRepository.getById(catDto.getId()); 
-			entity.getCategories().add(category);
-		}
+		applyCategories(dto.getCategories().stream().map(CategoryDTO::getId).collect(Collectors.toList()), entity);
 		
 	}
+	
+	/** Aplica só a diferença: categorias mantidas não geram delete/insert na tabela de junção */
+	private void applyCategories(List<Long> categoryIds, Product entity) {
+		Map<Long, Category> wanted = new HashMap<>();
+		for(Long catId : categoryIds) {
+			wanted.put(catId, categoryRepository.getById(catId));
+		}
+		entity.getCategories().removeIf(cat -> wanted.remove(cat.getId()) == null);
+		entity.getCategories().addAll(wanted.values());
+	}
 }
@@ -0,0 +1,148 @@
+package com.devsuperior.dscatalog.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.devsuperior.dscatalog.components.CachingJwtTokenStore;
+import com.devsuperior.dscatalog.components.TokenRevocationList;
+import com.devsuperior.dscatalog.entities.RevokedToken;
+import com.devsuperior.dscatalog.repositories.RevokedTokenRepository;
+import com.devsuperior.dscatalog.services.exceptions.InvalidRequestException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Revogação de JWT pelo jti. A tabela tb_revoked_token é a fonte da verdade (sobrevive a
+ * restart e é compartilhada entre instâncias); a TokenRevocationList é a cópia em memória
+ * consultada no caminho da requisição.
+ *
+ * Periodicamente a lista é sincronizada com a tabela (revogações feitas em outras
+ * instâncias) e as entradas de tokens já expirados são removidas das duas
+ */
+@Service
+public class TokenRevocationService {
+
+	private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+	/** Margem para diferença de relógio entre instâncias na sincronização (reaplicar é idempotente) */
+	private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+
+	@Autowired
+	private RevokedTokenRepository repository;
+
+	@Autowired
+	private TokenRevocationList revocationList;
+
+	@Autowired
+	private CachingJwtTokenStore tokenStore;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@Value("${jwt.duration}")
+	private long jwtDuration;
+
+	@Value("${catalog.revocation.sync-seconds:30}")
+	private long syncSeconds;
+
+	private ScheduledExecutorService scheduler;
+	private volatile Instant lastSync = Instant.EPOCH;
+
+	@PostConstruct
+	public void start() {
+		sync();
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "token-revocation-sync");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::sync, syncSeconds, syncSeconds, TimeUnit.SECONDS);
+		registry.gauge("token.revocation.size", revocationList, TokenRevocationList::size);
+	}
+
+	@PreDestroy
+	public void stop() {
+		scheduler.shutdownNow();
+	}
+
+	/** Logout: revoga o próprio token da requisição até o exp dele */
+	@Transactional
+	public void revokeToken(String tokenValue) {
+		OAuth2AccessToken token = tokenStore.readAccessToken(tokenValue);
+		Object jti = token.getAdditionalInformation().get(AccessTokenConverter.JTI);
+		if(jti == null || token.getExpiration() == null) {
+			throw new InvalidRequestException("Token has no jti or expiration");
+		}
+		revoke(jti.toString(), token.getExpiration().toInstant());
+		tokenStore.evict(tokenValue);
+	}
+
+	/** Token comprometido conhecido só pelo jti: sem o exp, vale pela duração máxima de um token */
+	@Transactional
+	public void revokeJti(String jti) {
+		if(jti == null || jti.isBlank() || jti.length() > RevokedToken.JTI_MAX_LENGTH) {
+			throw new InvalidRequestException("Invalid jti: expected 1 to " + RevokedToken.JTI_MAX_LENGTH + " characters");
+		}
+		revoke(jti, Instant.now().plusSeconds(jwtDuration));
+	}
+
+	public boolean isRevoked(String jti) {
+		return revocationList.isRevoked(jti);
+	}
+
+	private void revoke(String jti, Instant expiresAt) {
+		if(!repository.existsById(jti)) {
+			repository.save(new RevokedToken(jti, expiresAt, Instant.now()));
+		}
+		//a lista em memória só recebe após o commit: se o INSERT falhar ou a transação
+		//voltar, nenhuma instância pode ver o token como revogado sem a linha na tabela
+		if(TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					revocationList.revoke(jti, expiresAt);
+				}
+			});
+		}
+		else {
+			revocationList.revoke(jti, expiresAt);
+		}
+	}
+
+	/** Traz as revogações novas da tabela e descarta as que já expiraram */
+	void sync() {
+		try {
+			Instant now = Instant.now();
+			Instant since = lastSync.equals(Instant.EPOCH) ? Instant.EPOCH : lastSync.minus(SYNC_OVERLAP);
+			repository.findActiveRevokedSince(since, now)
+					.forEach(token -> revocationList.revoke(token.getJti(), token.getExpiresAt()));
+			lastSync = now;
+
+			int pruned = revocationList.prune(now);
+			int deleted = repository.deleteExpired(now);
+			logger.debug("Token revocation sync: {} revoked, {} pruned, {} rows deleted", 
+					revocationList.size(), pruned, deleted);
+		}
+		catch(RuntimeException e) {
+			//a próxima execução tenta de novo; a exceção cancelaria o agendamento
+			logger.warn("Token revocation sync failed", e);
+		}
+	}
+}
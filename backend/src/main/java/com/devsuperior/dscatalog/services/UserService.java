@@ -9,10 +9,12 @@ import javax.persistence.EntityNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -28,6 +30,7 @@ import com.devsuperior.dscatalog.entities.Role;
 import com.devsuperior.dscatalog.entities.User;
 import com.devsuperior.dscatalog.repositories.RoleRepository;
 import com.devsuperior.dscatalog.repositories.UserRepository;
+import com.devsuperior.dscatalog.services.events.UserChangedEvent;
 import com.devsuperior.dscatalog.services.exceptions.DatabaseException;
 import com.devsuperior.dscatalog.services.exceptions.ResourceNotFoundException;
 
@@ -46,14 +49,18 @@ public class UserService implements UserDetailsService {
 	@Autowired
 	private BCryptPasswordEncoder passwordEncoder;
 	
+	@Autowired
+	private ApplicationEventPublisher publisher;
+	
 	@Override
 	public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
 		User user = repository.findByEmail(username);
 		if(user == null) {
-			logger.error("User not found: "+username);
+			//debug parametrizado: chamado a cada login, sem concatenar quando o nível está desligado
+			logger.debug("User not found: {}", username);
 			throw new UsernameNotFoundException("E-mail não existe");
 		}
-		logger.info("User found: "+username);
+		logger.debug("User found: {}", username);
 		return user;
 	}
 	
@@ -76,6 +83,12 @@ public class UserService implements UserDetailsService {
 		return dtos;
 	}
 
+	/** Mesma listagem paginada, mas sem o total (sem consulta de count) */
+	@Transactional(readOnly = true)
+	public Slice<UserDTO> findAllSliced(Pageable pageRequest) {
+		return repository.findAllSliced(pageRequest).map(user -> new UserDTO(user));
+	}
+
 	@Transactional(readOnly = true)
 	public UserDTO findById(Long id) {
 		Optional<User> prodOpt = repository.findById(id);
@@ -104,8 +117,11 @@ public class UserService implements UserDetailsService {
 	public UserDTO update(Long id, UserUpdateDTO dto) {
 		try {
 			User prod = repository.getById(id);
+			String previousEmail = prod.getEmail();
 			dtoToEntity(dto, prod);
 			prod = repository.save(prod);
+			
+			publisher.publishEvent(new UserChangedEvent(id, List.of(previousEmail, prod.getEmail())));
 			return new UserDTO(prod);
 		}
 		catch(EntityNotFoundException ex) {
@@ -113,9 +129,14 @@ public class UserService implements UserDetailsService {
 		}
 	}
 
+	@Transactional
 	public void delete(Long id) {
 		try {
-			repository.deleteById(id);
+			User user = repository.findById(id).orElseThrow(() -> new EmptyResultDataAccessException(1));
+			repository.delete(user);
+			repository.flush();
+			
+			publisher.publishEvent(new UserChangedEvent(id, List.of(user.getEmail())));
 		}
 		catch(EmptyResultDataAccessException ex) {
 			throw new ResourceNotFoundException("Id not found "+ id);
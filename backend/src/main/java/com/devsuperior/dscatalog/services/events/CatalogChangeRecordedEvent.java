@@ -0,0 +1,20 @@
+package com.devsuperior.dscatalog.services.events;
+
+import com.devsuperior.dscatalog.dto.CatalogChangeDTO;
+
+/**
+ * Publicado pelo CatalogChangeService ao gravar um registro no log de alterações,
+ * já com a sequência atribuída (usada como id dos eventos SSE)
+ */
+public class CatalogChangeRecordedEvent {
+
+	private final CatalogChangeDTO change;
+	
+	public CatalogChangeRecordedEvent(CatalogChangeDTO change) {
+		this.change = change;
+	}
+
+	public CatalogChangeDTO getChange() {
+		return change;
+	}
+}
@@ -0,0 +1,44 @@
+package com.devsuperior.dscatalog.services.events;
+
+import com.devsuperior.dscatalog.dto.CategoryDTO;
+
+/**
+ * Publicado pelo CategoryService a cada escrita de categoria.
+ * Como o nome da categoria vai embutido nos produtos, quem guarda
+ * produtos em memória também precisa ouvir este evento
+ */
+public class CategoryChangedEvent {
+
+	public enum Type { SAVED, DELETED }
+	
+	private final Long id;
+	private final Type type;
+	private final CategoryDTO category;
+	
+	private CategoryChangedEvent(Long id, Type type, CategoryDTO category) {
+		this.id = id;
+		this.type = type;
+		this.category = category;
+	}
+	
+	public static CategoryChangedEvent saved(CategoryDTO category) {
+		return new CategoryChangedEvent(category.getId(), Type.SAVED, category);
+	}
+	
+	public static CategoryChangedEvent deleted(Long id) {
+		return new CategoryChangedEvent(id, Type.DELETED, null);
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/** null quando a categoria foi excluída */
+	public CategoryDTO getCategory() {
+		return category;
+	}
+}
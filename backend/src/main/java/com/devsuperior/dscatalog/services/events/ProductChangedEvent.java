@@ -0,0 +1,45 @@
+package com.devsuperior.dscatalog.services.events;
+
+import com.devsuperior.dscatalog.dto.ProductDTO;
+
+/**
+ * Publicado pelo ProductService a cada escrita de produto.
+ * Os ouvintes que mantêm estruturas em memória (índices, caches) usam
+ * @TransactionalEventListener para só reagir depois do commit
+ */
+public class ProductChangedEvent {
+
+	public enum Type { SAVED, DELETED }
+	
+	private final Long id;
+	private final Type type;
+	private final ProductDTO product;
+	
+	private ProductChangedEvent(Long id, Type type, ProductDTO product) {
+		this.id = id;
+		this.type = type;
+		this.product = product;
+	}
+	
+	/** Produto inserido ou atualizado, com o estado completo (incluindo categorias) */
+	public static ProductChangedEvent saved(ProductDTO product) {
+		return new ProductChangedEvent(product.getId(), Type.SAVED, product);
+	}
+	
+	public static ProductChangedEvent deleted(Long id) {
+		return new ProductChangedEvent(id, Type.DELETED, null);
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/** null quando o produto foi excluído */
+	public ProductDTO getProduct() {
+		return product;
+	}
+}
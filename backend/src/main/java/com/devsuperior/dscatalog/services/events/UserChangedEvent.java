@@ -0,0 +1,27 @@
+package com.devsuperior.dscatalog.services.events;
+
+import java.util.List;
+
+/**
+ * Publicado pelo UserService ao alterar ou excluir um usuário.
+ * Leva os e-mails afetados (o antigo e o novo, se o e-mail mudou),
+ * que são a chave do cache de autenticação
+ */
+public class UserChangedEvent {
+
+	private final Long id;
+	private final List<String> emails;
+	
+	public UserChangedEvent(Long id, List<String> emails) {
+		this.id = id;
+		this.emails = emails;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public List<String> getEmails() {
+		return emails;
+	}
+}
@@ -0,0 +1,11 @@
+package com.devsuperior.dscatalog.services.exceptions;
+
+public class ConcurrentUpdateException extends RuntimeException {
+
+	private static final long serialVersionUID = 6190374852251166423L;
+
+	public ConcurrentUpdateException(String msg) {
+		super(msg);
+	}	
+	
+}
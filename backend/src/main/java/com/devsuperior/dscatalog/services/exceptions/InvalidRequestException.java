@@ -0,0 +1,11 @@
+package com.devsuperior.dscatalog.services.exceptions;
+
+public class InvalidRequestException extends RuntimeException {
+
+	private static final long serialVersionUID = -4421946250186729913L;
+
+	public InvalidRequestException(String msg) {
+		super(msg);
+	}	
+	
+}
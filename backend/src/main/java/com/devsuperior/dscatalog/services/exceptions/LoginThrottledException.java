@@ -0,0 +1,28 @@
+package com.devsuperior.dscatalog.services.exceptions;
+
+public class LoginThrottledException extends RuntimeException {
+
+	private static final long serialVersionUID = -6083512749106235784L;
+	
+	private final long retryAfterSeconds;
+
+	public LoginThrottledException(long retryAfterSeconds) {
+		super("Too many failed login attempts, retry in " + retryAfterSeconds + " seconds");
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+	
+	public long getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+	
+	/** Procura a exceção na cadeia de causas (filtros e frameworks costumam embrulhá-la) */
+	public static LoginThrottledException findIn(Throwable e) {
+		for(Throwable t = e; t != null; t = t.getCause()) {
+			if(t instanceof LoginThrottledException) {
+				return (LoginThrottledException) t;
+			}
+		}
+		return null;
+	}
+	
+}
@@ -0,0 +1,11 @@
+package com.devsuperior.dscatalog.services.exceptions;
+
+public class PreconditionFailedException extends RuntimeException {
+
+	private static final long serialVersionUID = -2817563400173655921L;
+
+	public PreconditionFailedException(String msg) {
+		super(msg);
+	}	
+	
+}
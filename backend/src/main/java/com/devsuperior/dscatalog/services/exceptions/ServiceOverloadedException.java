@@ -0,0 +1,24 @@
+package com.devsuperior.dscatalog.services.exceptions;
+
+public class ServiceOverloadedException extends RuntimeException {
+
+	private static final long serialVersionUID = 3914128745603918742L;
+	
+	/** Valor do header Retry-After das respostas 503 */
+	public static final String RETRY_AFTER_SECONDS = "1";
+
+	public ServiceOverloadedException(String msg) {
+		super(msg);
+	}	
+	
+	/** Procura a exceção na cadeia de causas (filtros e frameworks costumam embrulhá-la) */
+	public static ServiceOverloadedException findIn(Throwable e) {
+		for(Throwable t = e; t != null; t = t.getCause()) {
+			if(t instanceof ServiceOverloadedException) {
+				return (ServiceOverloadedException) t;
+			}
+		}
+		return null;
+	}
+	
+}
@@ -0,0 +1,67 @@
+package com.devsuperior.dscatalog.services.filter;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.devsuperior.dscatalog.services.exceptions.InvalidRequestException;
+
+/**
+ * Filtro de produtos por categoria (?categoryId=1,3&match=any|all).
+ * any: produtos em pelo menos uma das categorias; all: produtos em todas elas.
+ * As duas semânticas viram a mesma consulta, mudando apenas o mínimo de categorias
+ * encontradas por produto (HAVING COUNT >= minMatches)
+ */
+public class CategoryFilter {
+
+	private static final CategoryFilter NONE = new CategoryFilter(Collections.emptySet(), false);
+	
+	private final Set<Long> categoryIds;
+	private final boolean matchAll;
+	
+	private CategoryFilter(Set<Long> categoryIds, boolean matchAll) {
+		this.categoryIds = categoryIds;
+		this.matchAll = matchAll;
+	}
+	
+	public static CategoryFilter of(List<Long> categoryIds, String match) {
+		if(categoryIds == null || categoryIds.isEmpty()) {
+			return NONE;
+		}
+		
+		boolean matchAll;
+		if("all".equalsIgnoreCase(match)) {
+			matchAll = true;
+		}
+		else if(match == null || "any".equalsIgnoreCase(match)) {
+			matchAll = false;
+		}
+		else {
+			throw new InvalidRequestException("Invalid match (use any or all): " + match);
+		}
+		
+		return new CategoryFilter(Collections.unmodifiableSet(new LinkedHashSet<>(categoryIds)), matchAll);
+	}
+	
+	public static CategoryFilter none() {
+		return NONE;
+	}
+	
+	public boolean isEmpty() {
+		return categoryIds.isEmpty();
+	}
+	
+	public Set<Long> getCategoryIds() {
+		return categoryIds;
+	}
+	
+	public boolean isMatchAll() {
+		return matchAll;
+	}
+	
+	/** Quantas das categorias pedidas o produto precisa ter */
+	public long getMinMatches() {
+		return matchAll ? categoryIds.size() : 1;
+	}
+}
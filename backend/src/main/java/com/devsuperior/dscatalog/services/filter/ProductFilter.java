@@ -0,0 +1,76 @@
+package com.devsuperior.dscatalog.services.filter;
+
+import java.time.Instant;
+
+import com.devsuperior.dscatalog.services.exceptions.InvalidRequestException;
+
+/**
+ * Filtro combinado da navegação facetada: categorias (any/all), faixa de preço
+ * e janela de datas. Limites nulos ficam em aberto; os informados são inclusivos
+ */
+public class ProductFilter {
+
+	private final CategoryFilter categories;
+	private final Double minPrice;
+	private final Double maxPrice;
+	private final Instant from;
+	private final Instant to;
+	
+	private ProductFilter(CategoryFilter categories, Double minPrice, Double maxPrice, Instant from, Instant to) {
+		this.categories = categories;
+		this.minPrice = minPrice;
+		this.maxPrice = maxPrice;
+		this.from = from;
+		this.to = to;
+	}
+	
+	public static ProductFilter of(CategoryFilter categories, Double minPrice, Double maxPrice, Instant from, Instant to) {
+		if(minPrice != null && maxPrice != null && minPrice > maxPrice) {
+			throw new InvalidRequestException("minPrice must not be greater than maxPrice");
+		}
+		if(from != null && to != null && from.isAfter(to)) {
+			throw new InvalidRequestException("from must not be after to");
+		}
+		return new ProductFilter(categories == null ? CategoryFilter.none() : categories, minPrice, maxPrice, from, to);
+	}
+
+	public CategoryFilter getCategories() {
+		return categories;
+	}
+
+	public Double getMinPrice() {
+		return minPrice;
+	}
+
+	public Double getMaxPrice() {
+		return maxPrice;
+	}
+
+	public Instant getFrom() {
+		return from;
+	}
+
+	public Instant getTo() {
+		return to;
+	}
+	
+	public boolean hasPriceRange() {
+		return minPrice != null || maxPrice != null;
+	}
+	
+	public boolean hasDateRange() {
+		return from != null || to != null;
+	}
+	
+	public boolean matchesPrice(Double price) {
+		return price != null 
+				&& (minPrice == null || price >= minPrice) 
+				&& (maxPrice == null || price <= maxPrice);
+	}
+	
+	public boolean matchesDate(Instant date) {
+		return date != null 
+				&& (from == null || !date.isBefore(from)) 
+				&& (to == null || !date.isAfter(to));
+	}
+}
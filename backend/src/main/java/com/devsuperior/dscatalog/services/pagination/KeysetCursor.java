@@ -0,0 +1,53 @@
+package com.devsuperior.dscatalog.services.pagination;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.devsuperior.dscatalog.services.exceptions.InvalidCursorException;
+
+/**
+ * Posição de uma paginação por chave (keyset/seek) ordenada por (name, id).
+ * O cliente recebe apenas o token opaco (Base64 URL) e o devolve em ?after=
+ * para buscar a próxima página, sem OFFSET e sem count(*)
+ */
+public class KeysetCursor {
+
+	private static final char SEPARATOR = ':';
+	
+	private final String name;
+	private final Long id;
+	
+	public KeysetCursor(String name, Long id) {
+		this.name = name;
+		this.id = id;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public Long getId() {
+		return id;
+	}
+	
+	public String encode() {
+		String raw = id + String.valueOf(SEPARATOR) + name;
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/** Token vazio ou nulo representa a primeira página */
+	public static KeysetCursor decode(String token) {
+		if(token == null || token.isBlank()) {
+			return null;
+		}
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			int sep = raw.indexOf(SEPARATOR);
+			return new KeysetCursor(raw.substring(sep + 1), Long.valueOf(raw.substring(0, sep)));
+		}
+		catch(IllegalArgumentException | IndexOutOfBoundsException ex) {
+			throw new InvalidCursorException("Cursor inválido: " + token);
+		}
+	}
+}
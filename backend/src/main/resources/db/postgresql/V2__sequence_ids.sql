@@ -0,0 +1,26 @@
+-- Migração de IDENTITY (bigserial) para sequences com alocação em blocos (pooled-lo).
+-- Executar uma única vez no banco PostgreSQL existente, com a aplicação parada:
+--   psql -v ON_ERROR_STOP=1 -1 -f V2__sequence_ids.sql
+--
+-- Cada sequence incrementa de 50 (mesmo allocationSize das entidades) e é posicionada
+-- logo após o maior id atual; o default bigserial antigo é removido das colunas.
+
+CREATE SEQUENCE IF NOT EXISTS seq_user INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS seq_role INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS seq_category INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS seq_product INCREMENT BY 50;
+
+SELECT setval('seq_user', COALESCE((SELECT MAX(id) FROM tb_user), 0) + 1, false);
+SELECT setval('seq_role', COALESCE((SELECT MAX(id) FROM tb_role), 0) + 1, false);
+SELECT setval('seq_category', COALESCE((SELECT MAX(id) FROM tb_category), 0) + 1, false);
+SELECT setval('seq_product', COALESCE((SELECT MAX(id) FROM tb_product), 0) + 1, false);
+
+ALTER TABLE tb_user ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE tb_role ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE tb_category ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE tb_product ALTER COLUMN id DROP DEFAULT;
+
+DROP SEQUENCE IF EXISTS tb_user_id_seq;
+DROP SEQUENCE IF EXISTS tb_role_id_seq;
+DROP SEQUENCE IF EXISTS tb_category_id_seq;
+DROP SEQUENCE IF EXISTS tb_product_id_seq;
@@ -0,0 +1,6 @@
+-- Índice inverso da tabela de junção para o filtro de produtos por categoria
+-- (a PK já cobre (product_id, category_id)).
+--   psql -v ON_ERROR_STOP=1 -f V3__product_category_index.sql
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_product_category_category_product
+	ON tb_product_category (category_id, product_id);
@@ -0,0 +1,16 @@
+-- Log de alterações do catálogo (outbox) lido por /catalog/changes.
+--   psql -v ON_ERROR_STOP=1 -1 -f V4__catalog_change.sql
+--
+-- O log começa vazio: clientes existentes fazem uma última carga completa por /products
+-- e, a partir dela, passam a consultar /catalog/changes?since=0.
+
+CREATE SEQUENCE IF NOT EXISTS seq_catalog_change INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS tb_catalog_change (
+	id BIGINT NOT NULL PRIMARY KEY,
+	entity_type VARCHAR(16) NOT NULL,
+	entity_id BIGINT NOT NULL,
+	operation VARCHAR(16) NOT NULL,
+	payload TEXT,
+	changed_at TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
@@ -0,0 +1,7 @@
+-- Coluna de versão (@Version) para o controle de concorrência otimista de produtos e categorias.
+--   psql -v ON_ERROR_STOP=1 -1 -f V5__optimistic_locking.sql
+--
+-- O default 0 vale para as linhas existentes e para inserções fora do JPA (importação em lote).
+
+ALTER TABLE tb_product ADD COLUMN IF NOT EXISTS version INTEGER DEFAULT 0 NOT NULL;
+ALTER TABLE tb_category ADD COLUMN IF NOT EXISTS version INTEGER DEFAULT 0 NOT NULL;
@@ -0,0 +1,13 @@
+-- Tokens JWT revogados antes do exp (DELETE /tokens/current e DELETE /tokens/{jti}).
+--   psql -v ON_ERROR_STOP=1 -1 -f V6__revoked_token.sql
+--
+-- Linhas com expires_at vencido são apagadas pela própria aplicação na sincronização.
+
+CREATE TABLE IF NOT EXISTS tb_revoked_token (
+	jti VARCHAR(64) NOT NULL PRIMARY KEY,
+	expires_at TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+	revoked_at TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_revoked_token_expires_at ON tb_revoked_token (expires_at);
+CREATE INDEX IF NOT EXISTS idx_revoked_token_revoked_at ON tb_revoked_token (revoked_at);
@@ -0,0 +1,15 @@
+-- Sequências do log de alterações atribuídas por um contador travado até o commit
+-- (em vez da sequence com blocos de 50, que deixava ids menores aparecerem depois
+-- de um maior já entregue em /catalog/changes).
+--   psql -v ON_ERROR_STOP=1 -1 -f V7__catalog_change_counter.sql
+
+CREATE TABLE IF NOT EXISTS tb_catalog_change_counter (
+	id INTEGER NOT NULL PRIMARY KEY,
+	last_sequence BIGINT NOT NULL
+);
+
+INSERT INTO tb_catalog_change_counter (id, last_sequence)
+SELECT 1, COALESCE(MAX(id), 0) FROM tb_catalog_change
+ON CONFLICT (id) DO NOTHING;
+
+DROP SEQUENCE IF EXISTS seq_catalog_change;
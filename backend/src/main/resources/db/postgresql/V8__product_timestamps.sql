@@ -0,0 +1,11 @@
+-- Colunas de auditoria do produto (Product.createdAt/updatedAt, também gravadas pela
+-- importação em lote). Sem elas, qualquer INSERT/UPDATE em tb_product falha.
+--   psql -v ON_ERROR_STOP=1 -1 -f V8__product_timestamps.sql
+--
+-- Linhas existentes não têm a data real de criação: recebem o momento da migração.
+
+ALTER TABLE tb_product ADD COLUMN IF NOT EXISTS created_at TIMESTAMP WITHOUT TIME ZONE;
+ALTER TABLE tb_product ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP WITHOUT TIME ZONE;
+
+UPDATE tb_product SET created_at = NOW() WHERE created_at IS NULL;
+UPDATE tb_product SET updated_at = created_at WHERE updated_at IS NULL;
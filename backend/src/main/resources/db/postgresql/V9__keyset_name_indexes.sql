@@ -0,0 +1,11 @@
+-- Índices (name, id) usados na paginação por cursor (?after=) de produtos:
+-- o WHERE (name, id) > (:name, :id) ORDER BY name, id vira um range scan no índice.
+-- O de categorias atende as listagens ordenadas por nome que não saem do CategorySnapshot.
+-- Correspondem aos @Index de Product e Category, que só o ddl-auto cria.
+--   psql -v ON_ERROR_STOP=1 -f V9__keyset_name_indexes.sql
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_product_name_id
+	ON tb_product (name, id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_category_name_id
+	ON tb_category (name, id);
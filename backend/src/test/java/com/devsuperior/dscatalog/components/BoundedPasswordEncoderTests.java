@@ -0,0 +1,64 @@
+package com.devsuperior.dscatalog.components;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.devsuperior.dscatalog.services.exceptions.ServiceOverloadedException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class BoundedPasswordEncoderTests {
+
+	private SimpleMeterRegistry registry;
+	private BoundedPasswordEncoder encoder;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+		registry = new SimpleMeterRegistry();
+		encoder = new BoundedPasswordEncoder(1, 1, 5000, registry);
+	}
+	
+	@AfterEach
+	void tearDown() throws Exception {
+		encoder.shutdown();
+	}
+	
+	@Test
+	public void encodeAndMatchesShouldRunOnPoolAndRecordLatency() {
+		String hash = encoder.encode("123456");
+		
+		Assertions.assertTrue(encoder.matches("123456", hash));
+		Assertions.assertFalse(encoder.matches("654321", hash));
+		Assertions.assertEquals(1, registry.get("bcrypt.hash").tag("operation", "encode").timer().count());
+		Assertions.assertEquals(2, registry.get("bcrypt.hash").tag("operation", "matches").timer().count());
+	}
+	
+	@Test
+	public void executeShouldThrowServiceOverloadedExceptionWhenQueueIsFull() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService callers = Executors.newFixedThreadPool(2);
+		try {
+			//uma tarefa ocupando a única thread e outra ocupando a única vaga da fila
+			callers.submit(() -> encoder.execute(() -> release.await(5, TimeUnit.SECONDS)));
+			callers.submit(() -> encoder.execute(() -> release.await(5, TimeUnit.SECONDS)));
+			while(registry.get("executor.queued").tag("name", "bcrypt").gauge().value() < 1) {
+				Thread.sleep(5);
+			}
+			
+			Assertions.assertThrows(ServiceOverloadedException.class, () -> {
+				encoder.encode("123456");
+			});
+		}
+		finally {
+			release.countDown();
+			callers.shutdown();
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package com.devsuperior.dscatalog.components;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CachingJwtTokenStoreTests {
+
+	private JwtAccessTokenConverter converter;
+	private TokenRevocationList revocationList;
+	private CachingJwtTokenStore store;
+	private String token;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+		converter = Mockito.spy(new JwtAccessTokenConverter());
+		converter.setSigningKey("MY-JWT-SECRET");
+		converter.afterPropertiesSet();
+		revocationList = new TokenRevocationList(100, 0.01);
+		store = new CachingJwtTokenStore(converter, revocationList, 100, 300, new SimpleMeterRegistry());
+		
+		OAuth2Request request = new OAuth2Request(Map.of(), "dscatalog", List.of(), true, 
+				Set.of("read", "write"), Set.of(), null, Set.of(), Map.of());
+		UsernamePasswordAuthenticationToken user = new UsernamePasswordAuthenticationToken(
+				"maria@gmail.com", "N/A", List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+		DefaultOAuth2AccessToken accessToken = new DefaultOAuth2AccessToken("id");
+		accessToken.setExpiration(new Date(System.currentTimeMillis() + 60_000));
+		
+		token = converter.enhance(accessToken, new OAuth2Authentication(request, user)).getValue();
+	}
+	
+	@Test
+	public void readShouldVerifyTokenOnlyOnceWhenRepeated() {
+		store.readAccessToken(token);
+		store.readAuthentication(token);
+		OAuth2Authentication auth = store.readAuthentication(store.readAccessToken(token));
+		
+		Mockito.verify(converter, Mockito.times(1)).extractAccessToken(ArgumentMatchers.eq(token), ArgumentMatchers.any());
+		Assertions.assertEquals("maria@gmail.com", auth.getName());
+	}
+	
+	@Test
+	public void readAuthenticationShouldReturnNewInstanceEachTime() {
+		Assertions.assertNotSame(store.readAuthentication(token), store.readAuthentication(token));
+	}
+	
+	@Test
+	public void readAuthenticationShouldThrowInvalidTokenExceptionWhenCachedTokenIsRevoked() {
+		OAuth2AccessToken accessToken = store.readAccessToken(token);
+		revocationList.revoke((String) accessToken.getAdditionalInformation().get(AccessTokenConverter.JTI), 
+				accessToken.getExpiration().toInstant());
+		
+		Assertions.assertThrows(InvalidTokenException.class, () -> {
+			store.readAuthentication(token);
+		});
+	}
+	
+	@Test
+	public void readAccessTokenShouldThrowInvalidTokenExceptionWhenSignatureIsWrong() {
+		String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+		
+		Assertions.assertThrows(InvalidTokenException.class, () -> {
+			store.readAccessToken(tampered);
+		});
+	}
+}
@@ -0,0 +1,96 @@
+package com.devsuperior.dscatalog.components;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.devsuperior.dscatalog.dto.CategoryDTO;
+import com.devsuperior.dscatalog.entities.Category;
+import com.devsuperior.dscatalog.repositories.CategoryRepository;
+
+@ExtendWith(SpringExtension.class)
+public class CategorySnapshotTests {
+
+	@InjectMocks
+	private CategorySnapshot snapshot;
+	
+	@Mock
+	private CategoryRepository repository;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+		Mockito.when(repository.findAll(ArgumentMatchers.any(Sort.class))).thenReturn(List.of(
+				new Category(1L, "Livros"), new Category(2L, "Eletrônicos"), new Category(3L, "Computadores")));
+	}
+	
+	@Test
+	public void getShouldLoadOnceAndServeFromMemory() {
+		snapshot.get();
+		snapshot.get();
+		
+		Assertions.assertEquals(3, snapshot.get().getCategories().size());
+		Mockito.verify(repository, Mockito.times(1)).findAll(ArgumentMatchers.any(Sort.class));
+	}
+	
+	@Test
+	public void pageShouldSortAndSliceInMemory() {
+		Page<CategoryDTO> page = snapshot.get().page(PageRequest.of(0, 2, Sort.by("name")));
+		
+		Assertions.assertEquals(3, page.getTotalElements());
+		Assertions.assertEquals("Computadores", page.getContent().get(0).getName());
+		Assertions.assertEquals("Eletrônicos", page.getContent().get(1).getName());
+	}
+	
+	@Test
+	public void sliceShouldReportNextPageWithoutTotal() {
+		Slice<CategoryDTO> slice = snapshot.get().slice(PageRequest.of(1, 2, Sort.by("id")));
+		
+		Assertions.assertEquals(List.of(3L), ids(slice.getContent()));
+		Assertions.assertFalse(slice.hasNext());
+		Assertions.assertTrue(snapshot.get().slice(PageRequest.of(0, 2)).hasNext());
+	}
+	
+	@Test
+	public void keysetPageShouldContinueAfterCursorInNameAndIdOrder() {
+		Assertions.assertEquals(List.of(3L, 2L), ids(snapshot.get().keysetPage(null, null, 2)));
+		Assertions.assertEquals(List.of(2L, 1L), ids(snapshot.get().keysetPage("Computadores", 3L, 5)));
+		//cursor de uma categoria que já não existe: continua do ponto onde ela estaria
+		Assertions.assertEquals(List.of(1L), ids(snapshot.get().keysetPage("Jogos", 9L, 5)));
+		Assertions.assertEquals(List.of(), ids(snapshot.get().keysetPage("Livros", 1L, 5)));
+	}
+	
+	@Test
+	public void canSortShouldRejectPropertiesNotKeptInMemory() {
+		Assertions.assertTrue(snapshot.get().canSort(Sort.by("name").and(Sort.by("id").descending())));
+		Assertions.assertFalse(snapshot.get().canSort(Sort.by("createdAt")));
+	}
+	
+	@Test
+	public void refreshShouldSwapToNewVersion() {
+		long first = snapshot.get().getVersion();
+		
+		Mockito.when(repository.findAll(ArgumentMatchers.any(Sort.class))).thenReturn(List.of(new Category(1L, "Livros")));
+		snapshot.refresh();
+		
+		Assertions.assertTrue(snapshot.get().getVersion() > first);
+		Assertions.assertEquals(1, snapshot.get().getCategories().size());
+		Assertions.assertNull(snapshot.get().findById(2L));
+	}
+	
+	private static List<Long> ids(List<CategoryDTO> categories) {
+		return categories.stream().map(CategoryDTO::getId).collect(Collectors.toList());
+	}
+}
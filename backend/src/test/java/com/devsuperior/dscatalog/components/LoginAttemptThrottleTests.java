@@ -0,0 +1,112 @@
+package com.devsuperior.dscatalog.components;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class LoginAttemptThrottleTests {
+
+	private MutableClock clock;
+	private LoginAttemptThrottle throttle;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+		clock = new MutableClock(Instant.parse("2021-01-01T00:00:00Z"));
+		//3 falhas por e-mail, 10 por IP, atraso 2s dobrando até 60s, janela de 300s
+		throttle = new LoginAttemptThrottle(1024, 3, 10, 2, 60, 300, clock);
+	}
+	
+	@Test
+	public void retryAfterSecondsShouldReturnZeroBelowThreshold() {
+		fail("maria@gmail.com", "10.0.0.1", 2);
+		
+		Assertions.assertEquals(0L, throttle.retryAfterSeconds("maria@gmail.com", "10.0.0.1"));
+	}
+	
+	@Test
+	public void retryAfterSecondsShouldDoubleDelayForEachFailureAfterThreshold() {
+		fail("maria@gmail.com", "10.0.0.1", 3);
+		Assertions.assertEquals(2L, throttle.retryAfterSeconds("maria@gmail.com", "10.0.0.2"));
+		
+		fail("maria@gmail.com", "10.0.0.1", 2);
+		Assertions.assertEquals(8L, throttle.retryAfterSeconds("maria@gmail.com", "10.0.0.2"));
+		
+		clock.advanceSeconds(8);
+		Assertions.assertEquals(0L, throttle.retryAfterSeconds("maria@gmail.com", "10.0.0.2"));
+	}
+	
+	@Test
+	public void retryAfterSecondsShouldBeCappedByMaxDelay() {
+		fail("maria@gmail.com", "10.0.0.1", 20);
+		
+		Assertions.assertEquals(60L, throttle.retryAfterSeconds("maria@gmail.com", null));
+	}
+	
+	@Test
+	public void retryAfterSecondsShouldBlockIpAcrossEmails() {
+		for(int i = 0; i < 10; i++) {
+			throttle.recordFailure("user" + i + "@gmail.com", "10.0.0.1");
+		}
+		
+		Assertions.assertEquals(2L, throttle.retryAfterSeconds("alex@gmail.com", "10.0.0.1"));
+		Assertions.assertEquals(0L, throttle.retryAfterSeconds("alex@gmail.com", "10.0.0.2"));
+	}
+	
+	@Test
+	public void recordSuccessShouldResetEmailButNotIp() {
+		fail("maria@gmail.com", "10.0.0.1", 10);
+		
+		throttle.recordSuccess("maria@gmail.com");
+		
+		Assertions.assertEquals(0L, throttle.retryAfterSeconds("maria@gmail.com", "10.0.0.2"));
+		Assertions.assertTrue(throttle.retryAfterSeconds("maria@gmail.com", "10.0.0.1") > 0);
+	}
+	
+	@Test
+	public void recordFailureShouldStartOverAfterWindow() {
+		fail("maria@gmail.com", "10.0.0.1", 2);
+		clock.advanceSeconds(301);
+		fail("maria@gmail.com", "10.0.0.1", 2);
+		
+		Assertions.assertEquals(0L, throttle.retryAfterSeconds("maria@gmail.com", "10.0.0.1"));
+	}
+	
+	private void fail(String email, String ip, int times) {
+		for(int i = 0; i < times; i++) {
+			throttle.recordFailure(email, ip);
+		}
+	}
+	
+	private static class MutableClock extends Clock {
+		
+		private Instant instant;
+		
+		MutableClock(Instant instant) {
+			this.instant = instant;
+		}
+		
+		void advanceSeconds(long seconds) {
+			instant = instant.plusSeconds(seconds);
+		}
+		
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+		
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+		
+		@Override
+		public Instant instant() {
+			return instant;
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package com.devsuperior.dscatalog.components;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.devsuperior.dscatalog.dto.ProductDTO;
+import com.devsuperior.dscatalog.tests.TestFactory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ProductDetailCacheTests {
+
+	private ProductDetailCache cache;
+	private Versioned<ProductDTO> entry;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+		cache = new ProductDetailCache(100, 60, new SimpleMeterRegistry());
+		entry = new Versioned<>(TestFactory.createProductDTO(), "\"1-v0\"");
+	}
+	
+	@Test
+	public void putIfUnchangedShouldStoreEntryWhenNoInvalidationHappened() {
+		long generation = cache.generation();
+		
+		cache.putIfUnchanged(1L, entry, generation);
+		
+		Assertions.assertSame(entry, cache.getIfPresent(1L));
+	}
+	
+	@Test
+	public void putIfUnchangedShouldSkipEntryReadBeforeAnInvalidation() {
+		long generation = cache.generation();
+		cache.invalidate(1L);
+		
+		cache.putIfUnchanged(1L, entry, generation);
+		
+		Assertions.assertNull(cache.getIfPresent(1L));
+	}
+}
@@ -0,0 +1,131 @@
+package com.devsuperior.dscatalog.components;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.devsuperior.dscatalog.components.ProductFilterIndex.FacetCounts;
+import com.devsuperior.dscatalog.entities.Category;
+import com.devsuperior.dscatalog.entities.Product;
+import com.devsuperior.dscatalog.repositories.ProductRepository;
+import com.devsuperior.dscatalog.services.filter.CategoryFilter;
+import com.devsuperior.dscatalog.services.filter.ProductFilter;
+
+public class ProductFilterIndexTests {
+
+	private ProductFilterIndex index;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+		index = new ProductFilterIndex(100, 7);
+		index.index(1L, 90.0, Instant.parse("2020-01-01T00:00:00Z"), List.of(1L));
+		index.index(2L, 150.0, Instant.parse("2020-01-10T00:00:00Z"), List.of(1L, 3L));
+		index.index(3L, 199.0, Instant.parse("2020-02-01T00:00:00Z"), List.of(3L));
+		index.index(4L, 250.0, Instant.parse("2020-03-01T00:00:00Z"), List.of(2L));
+		index.index(5L, 420.0, Instant.parse("2020-03-02T00:00:00Z"), List.of(3L));
+	}
+	
+	@Test
+	public void filterShouldCombineCategoriesWithAnyAndAll() {
+		Assertions.assertEquals(List.of(1L, 2L, 3L, 5L), ids(filter(List.of(1L, 3L), "any", null, null, null, null)));
+		Assertions.assertEquals(List.of(2L), ids(filter(List.of(1L, 3L), "all", null, null, null, null)));
+		Assertions.assertEquals(List.of(), ids(filter(List.of(99L), "any", null, null, null, null)));
+	}
+	
+	@Test
+	public void filterShouldApplyExactPriceLimitsInsideEdgeBuckets() {
+		//150 e 199 estão na mesma faixa [100, 200) que os dois limites
+		Assertions.assertEquals(List.of(2L, 3L, 4L), ids(filter(null, null, 150.0, 260.0, null, null)));
+		Assertions.assertEquals(List.of(3L), ids(filter(null, null, 151.0, 199.0, null, null)));
+		Assertions.assertEquals(List.of(4L, 5L), ids(filter(null, null, 200.0, null, null, null)));
+	}
+	
+	@Test
+	public void filterShouldIntersectCategoryPriceAndDate() {
+		List<Long> result = ids(filter(List.of(3L), "any", 100.0, null, 
+				Instant.parse("2020-01-10T00:00:00Z"), Instant.parse("2020-03-01T23:59:59Z")));
+		
+		Assertions.assertEquals(List.of(2L, 3L), result);
+	}
+	
+	@Test
+	public void indexShouldMoveProductWhenValuesChange() {
+		index.index(1L, 500.0, Instant.parse("2020-01-01T00:00:00Z"), List.of(2L));
+		
+		Assertions.assertEquals(List.of(2L), ids(filter(List.of(1L), "any", null, null, null, null)));
+		Assertions.assertEquals(List.of(1L, 5L), ids(filter(null, null, 400.0, null, null, null)));
+		Assertions.assertEquals(5, index.size());
+	}
+	
+	@Test
+	public void removeShouldDropProductFromEveryBitmap() {
+		index.remove(2L);
+		
+		Assertions.assertEquals(List.of(3L, 5L), ids(filter(List.of(3L), "any", null, null, null, null)));
+		Assertions.assertEquals(List.of(3L), ids(filter(null, null, 100.0, 199.0, null, null)));
+		Assertions.assertEquals(4, index.size());
+	}
+	
+	@Test
+	public void facetsShouldCountCategoriesAndPriceBandsOfGivenProducts() {
+		RoaringBitmap products = index.filter(filter(null, null, 100.0, null, null, null));
+		
+		FacetCounts counts = index.facets(products, List.of(1L, 2L, 3L), new double[] { 0, 200, 400 });
+		
+		Assertions.assertEquals(1L, counts.getCategoryCount(1L));
+		Assertions.assertEquals(1L, counts.getCategoryCount(2L));
+		Assertions.assertEquals(3L, counts.getCategoryCount(3L));
+		Assertions.assertEquals(2L, counts.getPriceBandCount(0));
+		Assertions.assertEquals(1L, counts.getPriceBandCount(1));
+		Assertions.assertEquals(1L, counts.getPriceBandCount(2));
+	}
+	
+	@Test
+	public void pageShouldReturnRequestedSliceOfIds() {
+		RoaringBitmap all = index.filter(filter(null, null, null, null, null, null));
+		
+		Assertions.assertEquals(List.of(3L, 4L), ProductFilterIndex.page(all, 1, 2));
+		Assertions.assertEquals(List.of(5L), ProductFilterIndex.page(all, 2, 2));
+		Assertions.assertEquals(List.of(), ProductFilterIndex.page(all, 3, 2));
+	}
+	
+	@Test
+	public void rebuildShouldKeepUpdatesReceivedWhileLoading() {
+		Product stale = new Product(1L, "Phone", "Good Phone", 90.0, null, Instant.parse("2020-01-01T00:00:00Z"));
+		stale.getCategories().add(new Category(1L, "Electronics"));
+		Product other = new Product(6L, "Book", "Good Book", 30.0, null, Instant.parse("2020-01-01T00:00:00Z"));
+		other.getCategories().add(new Category(1L, "Electronics"));
+		
+		ProductRepository repository = Mockito.mock(ProductRepository.class);
+		ReflectionTestUtils.setField(index, "repository", repository);
+		Mockito.when(repository.findByIdGreaterThanOrderByIdAsc(ArgumentMatchers.anyLong(), ArgumentMatchers.any(Pageable.class)))
+			.thenReturn(List.of(stale, other));
+		Mockito.when(repository.findProductsWithCategories(ArgumentMatchers.anyList()))
+			.thenAnswer(invocation -> {
+				//exclusão que faz commit depois de a carga ler o produto 1
+				index.remove(1L);
+				return List.of(stale, other);
+			});
+		
+		index.rebuild();
+		
+		Assertions.assertEquals(List.of(6L), ids(filter(List.of(1L), "any", null, null, null, null)));
+		Assertions.assertEquals(1, index.size());
+	}
+	
+	private ProductFilter filter(List<Long> categoryIds, String match, Double minPrice, Double maxPrice, Instant from, Instant to) {
+		return ProductFilter.of(CategoryFilter.of(categoryIds, match), minPrice, maxPrice, from, to);
+	}
+	
+	private List<Long> ids(ProductFilter filter) {
+		return ProductFilterIndex.page(index.filter(filter), 0, 100);
+	}
+}
@@ -0,0 +1,111 @@
+package com.devsuperior.dscatalog.components;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.devsuperior.dscatalog.components.ProductSearchIndex.SearchResult;
+import com.devsuperior.dscatalog.entities.Product;
+import com.devsuperior.dscatalog.repositories.ProductRepository;
+
+public class ProductSearchIndexTests {
+
+	private ProductSearchIndex index;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+		index = new ProductSearchIndex();
+		index.index(1L, "Smart TV", "Televisão com controle remoto");
+		index.index(2L, "Controle Remoto", "Controle universal para TV");
+		index.index(3L, "Livro de Eletrônica", "Eletrônicos para iniciantes");
+	}
+	
+	@Test
+	public void tokenizeShouldFoldAccentsAndCase() {
+		Assertions.assertEquals(List.of("eletronicos", "e", "acao"), ProductSearchIndex.tokenize("Eletrônicos e AÇÃO!"));
+	}
+	
+	@Test
+	public void searchShouldRankNameMatchesFirst() {
+		SearchResult result = index.search("controle", 0, 10);
+		
+		Assertions.assertEquals(2, result.getTotal());
+		Assertions.assertEquals(List.of(2L, 1L), result.getIds());
+	}
+	
+	@Test
+	public void searchShouldIgnoreAccentsInQuery() {
+		SearchResult result = index.search("ELETRONICOS", 0, 10);
+		
+		Assertions.assertEquals(List.of(3L), result.getIds());
+	}
+	
+	@Test
+	public void searchShouldReturnRequestedPage() {
+		SearchResult result = index.search("tv controle", 1, 1);
+		
+		Assertions.assertEquals(2, result.getTotal());
+		Assertions.assertEquals(List.of(1L), result.getIds());
+	}
+	
+	@Test
+	public void searchShouldReturnEmptyPageWhenPageIsFarBeyondResults() {
+		SearchResult result = index.search("controle", 100000000, 100);
+		
+		Assertions.assertEquals(2, result.getTotal());
+		Assertions.assertTrue(result.getIds().isEmpty());
+	}
+	
+	@Test
+	public void indexShouldReplacePreviousTermsWhenProductChanges() {
+		index.index(1L, "Notebook", "Computador portátil");
+		
+		Assertions.assertEquals(List.of(2L), index.search("tv", 0, 10).getIds());
+		Assertions.assertEquals(List.of(1L), index.search("notebook", 0, 10).getIds());
+	}
+	
+	@Test
+	public void removeShouldDropProductFromResults() {
+		index.remove(2L);
+		
+		Assertions.assertEquals(List.of(1L), index.search("controle", 0, 10).getIds());
+		Assertions.assertEquals(2, index.size());
+	}
+	
+	@Test
+	public void searchShouldBreakScoreTiesByLowestIdAcrossPages() {
+		for(long id = 10L; id < 30L; id++) {
+			index.index(id, "Cadeira", "");
+		}
+		
+		Assertions.assertEquals(List.of(10L, 11L, 12L), index.search("cadeira", 0, 3).getIds());
+		Assertions.assertEquals(List.of(13L, 14L, 15L), index.search("cadeira", 1, 3).getIds());
+		Assertions.assertEquals(List.of(28L, 29L), index.search("cadeira", 6, 3).getIds());
+		Assertions.assertEquals(20, index.search("cadeira", 0, 3).getTotal());
+	}
+	
+	@Test
+	public void rebuildShouldKeepUpdatesReceivedWhileLoading() {
+		ProductRepository repository = Mockito.mock(ProductRepository.class);
+		ReflectionTestUtils.setField(index, "repository", repository);
+		Mockito.when(repository.findByIdGreaterThanOrderByIdAsc(ArgumentMatchers.anyLong(), ArgumentMatchers.any(Pageable.class)))
+			.thenAnswer(invocation -> {
+				//escrita que faz commit depois de a carga ler o estado antigo do produto 1
+				index.index(1L, "Notebook", "Computador portátil");
+				return List.of(new Product(1L, "Smart TV", "Televisão", 100.0, null, Instant.now()));
+			});
+		
+		index.rebuild();
+		
+		Assertions.assertEquals(List.of(1L), index.search("notebook", 0, 10).getIds());
+		Assertions.assertTrue(index.search("tv", 0, 10).getIds().isEmpty());
+		Assertions.assertEquals(1, index.size());
+	}
+}
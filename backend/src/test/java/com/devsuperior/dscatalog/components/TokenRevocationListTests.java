@@ -0,0 +1,66 @@
+package com.devsuperior.dscatalog.components;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TokenRevocationListTests {
+
+	private TokenRevocationList list;
+	private Instant now;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+		list = new TokenRevocationList(16, 0.01);
+		now = Instant.now();
+	}
+	
+	@Test
+	public void isRevokedShouldReturnTrueOnlyForRevokedJti() {
+		list.revoke("jti-1", now.plusSeconds(60));
+		
+		Assertions.assertTrue(list.isRevoked("jti-1"));
+		Assertions.assertFalse(list.isRevoked("jti-2"));
+		Assertions.assertFalse(list.isRevoked(null));
+	}
+	
+	@Test
+	public void revokeShouldKeepAllEntriesWhenCapacityIsExceeded() {
+		for(int i = 0; i < 100; i++) {
+			list.revoke("jti-" + i, now.plusSeconds(60));
+		}
+		
+		for(int i = 0; i < 100; i++) {
+			Assertions.assertTrue(list.isRevoked("jti-" + i));
+		}
+		Assertions.assertEquals(100, list.size());
+	}
+	
+	@Test
+	public void pruneShouldRemoveOnlyExpiredEntries() {
+		list.revoke("expired", now.minusSeconds(1));
+		list.revoke("active", now.plusSeconds(60));
+		
+		Assertions.assertEquals(1, list.prune(now));
+		Assertions.assertFalse(list.isRevoked("expired"));
+		Assertions.assertTrue(list.isRevoked("active"));
+	}
+	
+	@Test
+	public void isRevokedShouldReturnFalseForUnknownJtiEvenOnFilterFalsePositive() {
+		for(int i = 0; i < 16; i++) {
+			list.revoke(UUID.randomUUID().toString(), now.plusSeconds(60));
+		}
+		
+		int revoked = 0;
+		for(int i = 0; i < 10000; i++) {
+			if(list.isRevoked(UUID.randomUUID().toString())) {
+				revoked++;
+			}
+		}
+		Assertions.assertEquals(0, revoked);
+	}
+}
@@ -0,0 +1,66 @@
+package com.devsuperior.dscatalog.components;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import com.devsuperior.dscatalog.entities.User;
+import com.devsuperior.dscatalog.services.events.UserChangedEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class UserDetailsCacheTests {
+
+	private static final String EMAIL = "maria@gmail.com";
+	private static final String PASSWORD = "123456";
+	
+	private UserDetailsCache cache;
+	private UserDetailsService userDetailsService;
+	private DaoAuthenticationProvider provider;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+		BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(4);
+		User user = new User(1L, "Maria", "Green", EMAIL, encoder.encode(PASSWORD));
+		
+		userDetailsService = Mockito.mock(UserDetailsService.class);
+		Mockito.when(userDetailsService.loadUserByUsername(EMAIL)).thenReturn(user);
+		
+		cache = new UserDetailsCache(100, 60, new SimpleMeterRegistry());
+		
+		provider = new DaoAuthenticationProvider();
+		provider.setUserDetailsService(userDetailsService);
+		provider.setPasswordEncoder(encoder);
+		provider.setUserCache(cache);
+	}
+	
+	@Test
+	public void authenticateShouldLoadUserOnceWhenCalledTwice() {
+		login();
+		Authentication auth = login();
+		
+		Mockito.verify(userDetailsService, Mockito.times(1)).loadUserByUsername(EMAIL);
+		Assertions.assertTrue(auth.getPrincipal() instanceof User);
+	}
+	
+	@Test
+	public void onUserChangedShouldEvictUserFromCache() {
+		login();
+		cache.onUserChanged(new UserChangedEvent(1L, List.of(EMAIL)));
+		login();
+		
+		Mockito.verify(userDetailsService, Mockito.times(2)).loadUserByUsername(EMAIL);
+	}
+	
+	private Authentication login() {
+		return provider.authenticate(new UsernamePasswordAuthenticationToken(EMAIL, PASSWORD));
+	}
+}
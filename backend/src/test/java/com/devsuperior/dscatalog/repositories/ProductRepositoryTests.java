@@ -1,5 +1,6 @@
 package com.devsuperior.dscatalog.repositories;
 
+import java.util.List;
 import java.util.Optional;
 
 import org.junit.jupiter.api.Assertions;
@@ -40,6 +41,20 @@ public class ProductRepositoryTests {
 		Assertions.assertEquals(countTotalProducts + 1, product.getId());
 	}
 	
+	@Test
+	public void saveAllShouldAllocateConsecutiveIdsFromSequenceBlock() {
+		Product first = TestFactory.createProduct();
+		first.setId(null);
+		Product second = TestFactory.createProduct();
+		second.setId(null);
+		
+		repository.saveAll(List.of(first, second));
+		
+		//o bloco reservado por um único nextval atende as duas inserções
+		Assertions.assertTrue(first.getId() > countTotalProducts);
+		Assertions.assertEquals(first.getId() + 1, second.getId());
+	}
+	
 	@Test
 	public void deleteShouldDeleteObjectWhenExists() {
 		//Arrange
@@ -0,0 +1,81 @@
+package com.devsuperior.dscatalog.resources;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.devsuperior.dscatalog.dto.CatalogChangesDTO;
+import com.devsuperior.dscatalog.services.CatalogChangeService;
+import com.devsuperior.dscatalog.services.ProductService;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class CatalogResourceIntegrationTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+	
+	@Autowired
+	private CatalogChangeService changeService;
+	
+	@Autowired
+	private ProductService productService;
+	
+	private Long start;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+		CatalogChangesDTO page;
+		start = 0L;
+		do {
+			page = changeService.findChanges(start, CatalogChangeService.MAX_LIMIT);
+			start = page.getNext();
+		} while(page.isHasMore());
+	}
+	
+	@Test
+	public void findChangesShouldReturnBadRequestWhenLimitOutOfRange() throws Exception {
+		mockMvc.perform(get("/catalog/changes?since=0&limit=0")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest());
+	}
+	
+	@Test
+	public void findChangesShouldReturnEmptyPageWhenNothingChangedSince() throws Exception {
+		mockMvc.perform(get("/catalog/changes?since={since}", start)
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.changes").isEmpty())
+				.andExpect(jsonPath("$.next").value(start))
+				.andExpect(jsonPath("$.hasMore").value(false));
+	}
+	
+	@Test
+	public void streamShouldReplayChangesAfterLastEventId() throws Exception {
+		productService.delete(1L);
+		
+		MvcResult result = mockMvc.perform(get("/catalog/stream")
+				.header("Last-Event-ID", start)
+				.accept(MediaType.TEXT_EVENT_STREAM))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		
+		String body = result.getResponse().getContentAsString();
+		Assertions.assertTrue(body.contains("event:product"));
+		Assertions.assertTrue(body.contains("\"operation\":\"delete\""));
+		Assertions.assertTrue(body.contains("\"id\":1"));
+	}
+}
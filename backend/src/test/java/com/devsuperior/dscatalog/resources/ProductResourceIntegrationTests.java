@@ -1,22 +1,37 @@
 package com.devsuperior.dscatalog.resources;
 
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.devsuperior.dscatalog.components.ResponseCache;
 import com.devsuperior.dscatalog.dto.ProductDTO;
+import com.devsuperior.dscatalog.services.ProductExportService;
+import com.devsuperior.dscatalog.services.events.ProductChangedEvent;
 import com.devsuperior.dscatalog.tests.TestFactory;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -35,6 +50,18 @@ public class ProductResourceIntegrationTests {
 	@Autowired
 	private ObjectMapper objectMapper;
 	
+	@Autowired
+	private ResponseCache responseCache;
+	
+	@Autowired
+	private ProductExportService exportService;
+	
+	@Value("${security.oauth2.client.client-id}")
+	private String clientId;
+	
+	@Value("${security.oauth2.client.client-secret}")
+	private String clientSecret;
+	
 	private Long existingId;
 	private Long nonExistingId;
 	private Long countTotalProducts;
@@ -64,6 +91,306 @@ public class ProductResourceIntegrationTests {
 		result.andExpect(jsonPath("$.content[2].name").value("PC Gamer Alfa"));
 	}
 	
+	@Test
+	public void findAllShouldReturnSliceWhenWithTotalIsFalse() throws Exception {
+		ResultActions result = 
+				mockMvc.perform(get("/products?page=0&size=12&withTotal=false")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.totalElements").doesNotExist());
+		result.andExpect(jsonPath("$.last").value(false));
+		result.andExpect(jsonPath("$.content").exists());
+	}
+	
+	@Test
+	public void findAllShouldReturnSummariesWithoutDescriptionWhenSummaryIsTrue() throws Exception {
+		ResultActions result = 
+				mockMvc.perform(get("/products?page=0&size=12&sort=name,asc&summary=true")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.totalElements").value(countTotalProducts));
+		result.andExpect(jsonPath("$.content[0].name").value("Macbook Pro"));
+		result.andExpect(jsonPath("$.content[0].price").exists());
+		result.andExpect(jsonPath("$.content[0].description").doesNotExist());
+	}
+	
+	@Test
+	public void findAllShouldApplyCategoryFilterWhenWithTotalIsFalse() throws Exception {
+		ResultActions result = 
+				mockMvc.perform(get("/products?categoryId=1&withTotal=false")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.content.length()").value(1));
+		result.andExpect(jsonPath("$.content[0].id").value(2L));
+		result.andExpect(jsonPath("$.last").value(true));
+	}
+	
+	@Test
+	public void findAllShouldApplyCategoryFilterWhenSummaryIsTrue() throws Exception {
+		ResultActions result = 
+				mockMvc.perform(get("/products?categoryId=1&summary=true")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.totalElements").value(1));
+		result.andExpect(jsonPath("$.content[0].id").value(2L));
+	}
+	
+	@Test
+	public void findAllShouldNotBeAmbiguousWhenListVariantsAreCombined() throws Exception {
+		mockMvc.perform(get("/products?ids=1,2&after=")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk());
+		
+		mockMvc.perform(get("/products?summary=true&after=")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk());
+		
+		mockMvc.perform(get("/products?ids=1&withTotal=false")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk());
+	}
+	
+	@Test
+	public void facetsShouldCountProductsPerCategoryAndPriceBand() throws Exception {
+		ResultActions result = 
+				mockMvc.perform(get("/products/facets")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.total").value(countTotalProducts));
+		result.andExpect(jsonPath("$.categories[0].name").value("Livros"));
+		result.andExpect(jsonPath("$.categories[0].count").value(1L));
+		result.andExpect(jsonPath("$.categories[1].count").value(2L));
+		result.andExpect(jsonPath("$.categories[2].count").value(countTotalProducts - 2));
+		result.andExpect(jsonPath("$.priceBands[0].min").value(0.0));
+		result.andExpect(jsonPath("$.priceBands[0].max").value(100.0));
+	}
+	
+	@Test
+	public void facetsShouldRestrictCountsToSearchResultsWhenQueryIsPresent() throws Exception {
+		ResultActions result = 
+				mockMvc.perform(get("/products/facets?q=gamer&categoryId=2")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.total").value(0L));
+		result.andExpect(jsonPath("$.categories[2].count").value(0L));
+	}
+	
+	@Test
+	public void filterShouldReturnProductsInsideDateWindow() throws Exception {
+		ResultActions result = 
+				mockMvc.perform(get("/products/filter?from=2020-07-14T00:00:00Z&to=2020-07-14T23:59:59Z&size=50")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.content[0].date").value("2020-07-14T10:00:00Z"));
+		result.andExpect(jsonPath("$.content[?(@.date != '2020-07-14T10:00:00Z')]").isEmpty());
+	}
+	
+	@Test
+	public void filterShouldReturnBadRequestWhenPriceRangeIsInverted() throws Exception {
+		mockMvc.perform(get("/products/filter?minPrice=500&maxPrice=100").accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest());
+	}
+	
+	@Test
+	public void findAllShouldReturnProductsInEveryCategoryWhenMatchAll() throws Exception {
+		ResultActions result = 
+				mockMvc.perform(get("/products?categoryId=1,3&match=all&withCategories=true")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.totalElements").value(1L));
+		result.andExpect(jsonPath("$.content[0].id").value(2L));
+		result.andExpect(jsonPath("$.content[0].categories.length()").value(2));
+	}
+	
+	@Test
+	public void findAllShouldReturnBadRequestWhenMatchIsInvalid() throws Exception {
+		mockMvc.perform(get("/products?categoryId=1&match=some").accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest());
+	}
+	
+	@Test
+	public void findAllShouldReturnProductsInRequestedOrderAndMissingIdsWhenIdsIsPresent() throws Exception {
+		ResultActions result = 
+				mockMvc.perform(get("/products?ids=3,2,{nonExistingId},3", nonExistingId)
+				.accept(MediaType.APPLICATION_JSON));
+		
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.content.length()").value(2));
+		result.andExpect(jsonPath("$.content[0].id").value(3L));
+		result.andExpect(jsonPath("$.content[1].id").value(2L));
+		result.andExpect(jsonPath("$.content[1].categories.length()").value(2));
+		result.andExpect(jsonPath("$.missing[0]").value(nonExistingId));
+	}
+	
+	@Test
+	public void findAllShouldReturnBadRequestWhenTooManyIds() throws Exception {
+		String ids = LongStream.rangeClosed(1, 101)
+				.mapToObj(String::valueOf).collect(Collectors.joining(","));
+		
+		mockMvc.perform(get("/products?ids=" + ids).accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest());
+	}
+	
+	@Test
+	public void exportShouldStreamOneJsonLinePerProductWithCategories() throws Exception {
+		String body = mockMvc.perform(get("/products/export?format=ndjson")
+					.header("Authorization", "Bearer " + obtainAccessToken("alex@gmail.com", "123456")))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+				.andReturn().getResponse().getContentAsString();
+		
+		String[] lines = body.split("\n");
+		Assertions.assertEquals(countTotalProducts, lines.length);
+		
+		JsonNode second = objectMapper.readTree(lines[1]);
+		Assertions.assertEquals(2L, second.get("id").asLong());
+		Assertions.assertEquals(2, second.get("categories").size());
+	}
+	
+	@Test
+	public void exportShouldStreamCsvWithHeader() throws Exception {
+		String body = mockMvc.perform(get("/products/export?format=csv")
+					.header("Authorization", "Bearer " + obtainAccessToken("alex@gmail.com", "123456")))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith("text/csv"))
+				.andReturn().getResponse().getContentAsString();
+		
+		String[] lines = body.split("\r\n");
+		Assertions.assertEquals(countTotalProducts + 1, lines.length);
+		Assertions.assertTrue(lines[0].startsWith("id,name,"));
+		Assertions.assertTrue(lines[2].startsWith("2,"));
+		Assertions.assertTrue(lines[2].endsWith(",1|3,Livros|Computadores"));
+	}
+	
+	@Test
+	public void exportShouldReturnBadRequestWhenFormatIsUnsupported() throws Exception {
+		mockMvc.perform(get("/products/export?format=xml")
+					.header("Authorization", "Bearer " + obtainAccessToken("alex@gmail.com", "123456")))
+				.andExpect(status().isBadRequest());
+	}
+	
+	@Test
+	public void exportShouldReturnUnauthorizedWhenAnonymous() throws Exception {
+		mockMvc.perform(get("/products/export?format=ndjson"))
+				.andExpect(status().isUnauthorized());
+	}
+	
+	@Test
+	public void exportShouldReturnServiceUnavailableWhenAllSlotsAreTaken() throws Exception {
+		String accessToken = obtainAccessToken("alex@gmail.com", "123456");
+		Object permits = ReflectionTestUtils.getField(exportService, "permits");
+		ReflectionTestUtils.setField(exportService, "permits", new Semaphore(0));
+		try {
+			mockMvc.perform(get("/products/export?format=ndjson")
+						.header("Authorization", "Bearer " + accessToken))
+					.andExpect(status().isServiceUnavailable())
+					.andExpect(header().exists("Retry-After"))
+					.andExpect(header().doesNotExist("Content-Disposition"));
+		}
+		finally {
+			ReflectionTestUtils.setField(exportService, "permits", permits);
+		}
+	}
+	
+	@Test
+	public void findAllShouldReturnCursorPageWhenAfterIsPresent() throws Exception {
+		ResultActions result = 
+				mockMvc.perform(get("/products?after=&size=3")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.totalElements").doesNotExist());
+		result.andExpect(jsonPath("$.content[0].name").value("Macbook Pro"));
+		result.andExpect(jsonPath("$.content[2].name").value("PC Gamer Alfa"));
+		result.andExpect(jsonPath("$.nextCursor").exists());
+	}
+	
+	@Test
+	public void findAllShouldReturnBadRequestWhenCursorIsMalformed() throws Exception {
+		ResultActions result = 
+				mockMvc.perform(get("/products?after=%%%")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		result.andExpect(status().isBadRequest());
+	}
+	
+	@Test
+	public void findByIdShouldReturnNotModifiedWhenETagMatches() throws Exception {
+		String etag = mockMvc.perform(get("/products/{id}", existingId)
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(header().exists("ETag"))
+				.andReturn().getResponse().getHeader("ETag");
+		
+		ResultActions result = 
+				mockMvc.perform(get("/products/{id}", existingId)
+				.header("If-None-Match", etag)
+				.accept(MediaType.APPLICATION_JSON));
+		
+		result.andExpect(status().isNotModified());
+		result.andExpect(content().string(""));
+	}
+	
+	@Test
+	public void findAllShouldReturnNotModifiedWhenETagMatches() throws Exception {
+		String etag = mockMvc.perform(get("/products?page=0&size=12")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader("ETag");
+		
+		ResultActions result = 
+				mockMvc.perform(get("/products?page=0&size=12")
+				.header("If-None-Match", etag)
+				.accept(MediaType.APPLICATION_JSON));
+		
+		result.andExpect(status().isNotModified());
+	}
+	
+	@Test
+	public void findByIdShouldBeServedFromResponseCacheWithSurrogateKey() throws Exception {
+		responseCache.onProductChanged(ProductChangedEvent.deleted(existingId));
+		
+		String body = mockMvc.perform(get("/products/{id}", existingId)
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(header().string("X-Cache", "MISS"))
+				.andExpect(header().string("Surrogate-Key", "product-1 category-2"))
+				.andExpect(header().string("Cache-Control", "public, max-age=0, s-maxage=60"))
+				.andReturn().getResponse().getContentAsString();
+		
+		ResultActions result = 
+				mockMvc.perform(get("/products/{id}", existingId)
+				.accept(MediaType.APPLICATION_JSON));
+		
+		result.andExpect(status().isOk());
+		result.andExpect(header().string("X-Cache", "HIT"));
+		result.andExpect(header().string("Cache-Control", "public, max-age=0, s-maxage=60"));
+		result.andExpect(content().string(body));
+	}
+	
+	@Test
+	public void responseCacheShouldPurgeOnlyEntriesTaggedWithChangedProduct() throws Exception {
+		responseCache.onProductChanged(ProductChangedEvent.deleted(existingId));
+		responseCache.onProductChanged(ProductChangedEvent.deleted(3L));
+		mockMvc.perform(get("/products/{id}", existingId)).andExpect(status().isOk());
+		mockMvc.perform(get("/products/{id}", 3L)).andExpect(status().isOk());
+		
+		responseCache.onProductChanged(ProductChangedEvent.deleted(existingId));
+		
+		mockMvc.perform(get("/products/{id}", existingId))
+				.andExpect(header().string("X-Cache", "MISS"));
+		mockMvc.perform(get("/products/{id}", 3L))
+				.andExpect(header().string("X-Cache", "HIT"));
+	}
+	
 	@Test
 	public void updateShouldReturnProductDTOWhenExistingId() throws Exception {
 		dto.setId(existingId);
@@ -97,4 +424,17 @@ public class ProductResourceIntegrationTests {
 		result.andExpect(status().isNotFound());
 	}
 	
+	
+	private String obtainAccessToken(String username, String password) throws Exception {
+		String body = mockMvc.perform(post("/oauth/token")
+					.param("grant_type", "password")
+					.param("username", username)
+					.param("password", password)
+					.with(httpBasic(clientId, clientSecret))
+					.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		
+		return objectMapper.readTree(body).get("access_token").asText();
+	}
 }
@@ -24,7 +24,11 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 
+import com.devsuperior.dscatalog.components.Versioned;
 import com.devsuperior.dscatalog.dto.ProductDTO;
+import com.devsuperior.dscatalog.services.ProductExportService;
+import com.devsuperior.dscatalog.services.ProductFacetService;
+import com.devsuperior.dscatalog.services.ProductImportService;
 import com.devsuperior.dscatalog.services.ProductService;
 import com.devsuperior.dscatalog.services.exceptions.DatabaseException;
 import com.devsuperior.dscatalog.services.exceptions.ResourceNotFoundException;
@@ -46,6 +50,15 @@ public class ProductResourceTests {
 	@MockBean //usado quando a classe carrega o contexto da aplicação e precisa mokar algum bean do sistema
 	private ProductService service;
 	
+	@MockBean
+	private ProductExportService exportService;
+	
+	@MockBean
+	private ProductImportService importService;
+	
+	@MockBean
+	private ProductFacetService facetService;
+	
 	private ProductDTO  productDTO;
 	private PageImpl<ProductDTO> page; //precisa de um objeto concreto para poder dar new
 	private Long existingId = 1L;
@@ -66,8 +79,8 @@ public class ProductResourceTests {
 		when(service.findById(nonExistingId)).thenThrow(ResourceNotFoundException.class);
 		
 		//eq evita erro ao usar o any
-		when(service.atualizar(eq(existingId), any())).thenReturn(productDTO);
-		when(service.atualizar(eq(nonExistingId), any())).thenThrow(ResourceNotFoundException.class);
+		when(service.atualizar(eq(existingId), any(), any())).thenReturn(new Versioned<>(productDTO, "\"1-v1\""));
+		when(service.atualizar(eq(nonExistingId), any(), any())).thenThrow(ResourceNotFoundException.class);
 		
 		doNothing().when(service).delete(existingId);
 		doThrow(ResourceNotFoundException.class).when(service).delete(nonExistingId);
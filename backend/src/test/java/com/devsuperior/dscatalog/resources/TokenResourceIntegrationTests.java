@@ -0,0 +1,121 @@
+package com.devsuperior.dscatalog.resources;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class TokenResourceIntegrationTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Value("${security.oauth2.client.client-id}")
+	private String clientId;
+	
+	@Value("${security.oauth2.client.client-secret}")
+	private String clientSecret;
+	
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED) //a lista em memória só recebe o jti após o commit
+	public void revokeCurrentShouldRejectTokenOnNextRequest() throws Exception {
+		String accessToken = obtainAccessToken("maria@gmail.com", "123456");
+		
+		mockMvc.perform(get("/users/1")
+				.header("Authorization", "Bearer " + accessToken))
+				.andExpect(status().isOk());
+		
+		mockMvc.perform(delete("/tokens/current")
+				.header("Authorization", "Bearer " + accessToken))
+				.andExpect(status().isNoContent());
+		
+		mockMvc.perform(get("/users/1")
+				.header("Authorization", "Bearer " + accessToken))
+				.andExpect(status().isUnauthorized());
+	}
+	
+	@Test
+	public void revokeShouldReturnForbiddenWhenUserIsNotAdmin() throws Exception {
+		String accessToken = obtainAccessToken("alex@gmail.com", "123456");
+		
+		mockMvc.perform(delete("/tokens/{jti}", "any")
+				.header("Authorization", "Bearer " + accessToken))
+				.andExpect(status().isForbidden());
+	}
+	
+	@Test
+	public void revokeShouldReturnBadRequestWhenJtiIsTooLong() throws Exception {
+		String accessToken = obtainAccessToken("maria@gmail.com", "123456");
+		
+		mockMvc.perform(delete("/tokens/{jti}", "x".repeat(65))
+				.header("Authorization", "Bearer " + accessToken))
+				.andExpect(status().isBadRequest());
+	}
+	
+	@Test
+	public void obtainTokenShouldReturnTooManyRequestsAfterRepeatedFailures() throws Exception {
+		for(int i = 0; i < 5; i++) {
+			mockMvc.perform(tokenRequest("throttled@gmail.com", "wrong"))
+					.andExpect(status().isBadRequest());
+		}
+		
+		mockMvc.perform(tokenRequest("throttled@gmail.com", "wrong"))
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().exists("Retry-After"));
+	}
+	
+	@Test
+	public void actuatorShouldExposeHealthPubliclyAndMetricsOnlyToAdmin() throws Exception {
+		mockMvc.perform(get("/actuator/health"))
+				.andExpect(status().isOk());
+		
+		mockMvc.perform(get("/actuator/metrics"))
+				.andExpect(status().isUnauthorized());
+		
+		mockMvc.perform(get("/actuator/metrics")
+				.header("Authorization", "Bearer " + obtainAccessToken("alex@gmail.com", "123456")))
+				.andExpect(status().isForbidden());
+		
+		mockMvc.perform(get("/actuator/metrics")
+				.header("Authorization", "Bearer " + obtainAccessToken("maria@gmail.com", "123456")))
+				.andExpect(status().isOk());
+	}
+	
+	private String obtainAccessToken(String username, String password) throws Exception {
+		String body = mockMvc.perform(tokenRequest(username, password))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		
+		return objectMapper.readTree(body).get("access_token").asText();
+	}
+	
+	private MockHttpServletRequestBuilder tokenRequest(String username, String password) {
+		return post("/oauth/token")
+				.param("grant_type", "password")
+				.param("username", username)
+				.param("password", password)
+				.with(httpBasic(clientId, clientSecret))
+				.accept(MediaType.APPLICATION_JSON);
+	}
+}
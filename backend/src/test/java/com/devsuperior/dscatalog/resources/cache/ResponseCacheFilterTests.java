@@ -0,0 +1,18 @@
+package com.devsuperior.dscatalog.resources.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ResponseCacheFilterTests {
+
+	@Test
+	public void matchesNoneMatchShouldCompareEachETagExactly() {
+		Assertions.assertTrue(ResponseCacheFilter.matchesNoneMatch("\"a\", \"1-v2\"", "\"1-v2\""));
+		Assertions.assertTrue(ResponseCacheFilter.matchesNoneMatch("W/\"1-v2\"", "\"1-v2\""));
+		Assertions.assertTrue(ResponseCacheFilter.matchesNoneMatch("*", "\"1-v2\""));
+		
+		Assertions.assertFalse(ResponseCacheFilter.matchesNoneMatch("\"11-v2\"", "\"1-v2\""));
+		Assertions.assertFalse(ResponseCacheFilter.matchesNoneMatch("\"x\"1-v2\"\"", "\"1-v2\""));
+		Assertions.assertFalse(ResponseCacheFilter.matchesNoneMatch(null, "\"1-v2\""));
+	}
+}
@@ -0,0 +1,43 @@
+package com.devsuperior.dscatalog.resources.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.devsuperior.dscatalog.components.ResponseCache;
+import com.devsuperior.dscatalog.dto.CategoryDTO;
+import com.devsuperior.dscatalog.dto.ProductDTO;
+
+public class SurrogateKeyAdviceTests {
+
+	@Test
+	public void tagsOfShouldFallBackToCoarseTagsBeyondItemLimit() {
+		List<ProductDTO> page = new ArrayList<>();
+		for(long id = 1; id <= 1000; id++) {
+			ProductDTO dto = new ProductDTO(id, "Produto " + id, "", 10.0, "", null);
+			dto.getCategories().add(new CategoryDTO(id, "Categoria " + id));
+			page.add(dto);
+		}
+		
+		Set<String> tags = SurrogateKeyAdvice.tagsOf("/products", page);
+		
+		Assertions.assertTrue(tags.contains(ResponseCache.PRODUCTS));
+		Assertions.assertTrue(tags.contains(ResponseCache.CATEGORIES));
+		Assertions.assertTrue(tags.contains(ResponseCache.productTag(1L)));
+		Assertions.assertFalse(tags.contains(ResponseCache.productTag(1000L)));
+		Assertions.assertTrue(tags.size() <= SurrogateKeyAdvice.MAX_ITEM_TAGS + 2);
+	}
+	
+	@Test
+	public void tagsOfShouldKeepAllItemTagsBelowLimit() {
+		ProductDTO dto = new ProductDTO(1L, "Produto", "", 10.0, "", null);
+		dto.getCategories().add(new CategoryDTO(2L, "Categoria"));
+		
+		Set<String> tags = SurrogateKeyAdvice.tagsOf("/products/1", dto);
+		
+		Assertions.assertEquals(Set.of(ResponseCache.productTag(1L), ResponseCache.categoryTag(2L)), tags);
+	}
+}
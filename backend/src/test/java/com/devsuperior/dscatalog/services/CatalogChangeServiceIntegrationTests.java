@@ -0,0 +1,154 @@
+package com.devsuperior.dscatalog.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.devsuperior.dscatalog.dto.CatalogChangeDTO;
+import com.devsuperior.dscatalog.dto.CatalogChangesDTO;
+import com.devsuperior.dscatalog.dto.ProductDTO;
+import com.devsuperior.dscatalog.services.exceptions.InvalidRequestException;
+import com.devsuperior.dscatalog.tests.TestFactory;
+
+@SpringBootTest
+@Transactional
+public class CatalogChangeServiceIntegrationTests {
+
+	@Autowired
+	private CatalogChangeService changeService;
+	
+	@Autowired
+	private ProductService productService;
+	
+	private Long start;
+	
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+		CatalogChangesDTO page;
+		start = 0L;
+		do {
+			page = changeService.findChanges(start, CatalogChangeService.MAX_LIMIT);
+			start = page.getNext();
+		} while(page.isHasMore());
+	}
+	
+	@Test
+	public void findChangesShouldReturnUpsertsAndTombstonesInOrder() {
+		ProductDTO saved = productService.salvar(TestFactory.createProductDTO());
+		productService.delete(1L);
+		
+		CatalogChangesDTO result = changeService.findChanges(start, 10);
+		
+		Assertions.assertEquals(2, result.getChanges().size());
+		Assertions.assertFalse(result.isHasMore());
+		
+		CatalogChangeDTO upsert = result.getChanges().get(0);
+		Assertions.assertEquals("product", upsert.getEntity());
+		Assertions.assertEquals("upsert", upsert.getOperation());
+		Assertions.assertEquals(saved.getId(), upsert.getId());
+		Assertions.assertTrue(upsert.getData().contains(saved.getName()));
+		
+		CatalogChangeDTO tombstone = result.getChanges().get(1);
+		Assertions.assertEquals("delete", tombstone.getOperation());
+		Assertions.assertEquals(1L, tombstone.getId());
+		Assertions.assertNull(tombstone.getData());
+		
+		Assertions.assertTrue(upsert.getSequence() < tombstone.getSequence());
+		Assertions.assertEquals(tombstone.getSequence(), result.getNext());
+	}
+	
+	@Test
+	public void findChangesShouldPageUsingNextSequence() {
+		productService.delete(1L);
+		productService.delete(2L);
+		productService.delete(3L);
+		
+		CatalogChangesDTO first = changeService.findChanges(start, 2);
+		CatalogChangesDTO second = changeService.findChanges(first.getNext(), 2);
+		
+		Assertions.assertEquals(2, first.getChanges().size());
+		Assertions.assertTrue(first.isHasMore());
+		Assertions.assertEquals(1, second.getChanges().size());
+		Assertions.assertFalse(second.isHasMore());
+		Assertions.assertEquals(3L, second.getChanges().get(0).getId());
+	}
+	
+	/**
+	 * A transação lenta pega a sequência primeiro; a rápida, que começa depois, só obtém
+	 * a dela quando a lenta faz commit. Assim nenhuma sequência menor aparece depois
+	 * de uma maior que o cliente já leu
+	 */
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public void findChangesShouldNotExposeHigherSequenceBeforeSlowerTransactionCommits() throws Exception {
+		TransactionTemplate tx = new TransactionTemplate(transactionManager);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		CountDownLatch slowRecorded = new CountDownLatch(1);
+		CountDownLatch releaseSlow = new CountDownLatch(1);
+		List<Long> created = new ArrayList<>();
+		try {
+			Future<ProductDTO> slow = executor.submit(() -> tx.execute(status -> {
+				ProductDTO dto = productService.salvar(TestFactory.createProductDTO());
+				slowRecorded.countDown();
+				await(releaseSlow);
+				return dto;
+			}));
+			Assertions.assertTrue(slowRecorded.await(5, TimeUnit.SECONDS));
+			
+			Future<ProductDTO> fast = executor.submit(() -> tx.execute(status -> 
+				productService.salvar(TestFactory.createProductDTO())));
+			
+			//a rápida espera a trava do contador; nada novo está visível no log
+			Thread.sleep(200);
+			Assertions.assertFalse(fast.isDone());
+			Assertions.assertTrue(changeService.findChanges(start, 10).getChanges().isEmpty());
+			
+			releaseSlow.countDown();
+			created.add(slow.get(5, TimeUnit.SECONDS).getId());
+			created.add(fast.get(5, TimeUnit.SECONDS).getId());
+			
+			List<CatalogChangeDTO> changes = changeService.findChanges(start, 10).getChanges();
+			Assertions.assertEquals(2, changes.size());
+			Assertions.assertEquals(created.get(0), changes.get(0).getId());
+			Assertions.assertEquals(created.get(1), changes.get(1).getId());
+			Assertions.assertTrue(changes.get(0).getSequence() < changes.get(1).getSequence());
+		}
+		finally {
+			releaseSlow.countDown();
+			executor.shutdown();
+			created.forEach(productService::delete);
+		}
+	}
+	
+	@Test
+	public void findChangesShouldThrowInvalidRequestExceptionWhenLimitOutOfRange() {
+		Assertions.assertThrows(InvalidRequestException.class, () -> {
+			changeService.findChanges(0L, CatalogChangeService.MAX_LIMIT + 1);
+		});
+	}
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
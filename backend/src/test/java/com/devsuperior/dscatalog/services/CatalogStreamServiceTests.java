@@ -0,0 +1,100 @@
+package com.devsuperior.dscatalog.services;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.devsuperior.dscatalog.dto.CatalogChangeDTO;
+import com.devsuperior.dscatalog.entities.CatalogChange;
+import com.devsuperior.dscatalog.services.events.CatalogChangeRecordedEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CatalogStreamServiceTests {
+
+	private CatalogStreamService service;
+	private List<SseEmitter> emitters;
+	private CountDownLatch release;
+	private CountDownLatch delivered;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+		emitters = new ArrayList<>();
+		release = new CountDownLatch(1);
+		delivered = new CountDownLatch(1);
+		
+		service = new CatalogStreamService() {
+			@Override
+			SseEmitter createEmitter(long timeout) {
+				//o primeiro assinante nunca lê: o envio fica preso, ignorando interrupção
+				SseEmitter emitter = emitters.isEmpty() ? new StalledEmitter() : new RecordingEmitter();
+				emitters.add(emitter);
+				return emitter;
+			}
+		};
+		ReflectionTestUtils.setField(service, "registry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(service, "bufferSize", 16);
+		ReflectionTestUtils.setField(service, "timeoutMillis", 60000L);
+		ReflectionTestUtils.setField(service, "heartbeatSeconds", 60L);
+		ReflectionTestUtils.setField(service, "maxReplay", 100);
+		ReflectionTestUtils.setField(service, "sendThreads", 1);
+		ReflectionTestUtils.setField(service, "sendTimeoutMillis", 200L);
+		service.start();
+	}
+	
+	@AfterEach
+	void tearDown() throws Exception {
+		release.countDown();
+		service.stop();
+	}
+	
+	@Test
+	public void onChangeRecordedShouldKeepDeliveringWhenSubscriberNeverReads() throws Exception {
+		service.subscribe(null);
+		service.onChangeRecorded(event(1L));
+		
+		service.subscribe(null);
+		service.onChangeRecorded(event(2L));
+		
+		//com uma única thread de envio, só chega se o envio parado for descartado
+		Assertions.assertTrue(delivered.await(5, TimeUnit.SECONDS));
+	}
+	
+	private static CatalogChangeRecordedEvent event(Long sequence) {
+		return new CatalogChangeRecordedEvent(new CatalogChangeDTO(
+				new CatalogChange(sequence, CatalogChange.EntityType.PRODUCT, 1L, CatalogChange.Operation.UPSERT, "{}")));
+	}
+	
+	private class StalledEmitter extends SseEmitter {
+		
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			boolean released = false;
+			while(!released) {
+				try {
+					released = release.await(1, TimeUnit.MINUTES);
+				}
+				catch(InterruptedException e) {
+					//como uma escrita bloqueante no socket: a interrupção não a libera
+				}
+			}
+		}
+	}
+	
+	private class RecordingEmitter extends SseEmitter {
+		
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			delivered.countDown();
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package com.devsuperior.dscatalog.services;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.devsuperior.dscatalog.dto.ProductImportResultDTO;
+import com.devsuperior.dscatalog.entities.Category;
+import com.devsuperior.dscatalog.entities.Product;
+import com.devsuperior.dscatalog.repositories.ProductRepository;
+
+@SpringBootTest
+@Transactional
+public class ProductImportServiceIntegrationTests {
+
+	@Autowired
+	private ProductImportService service;
+	
+	@Autowired
+	private ProductRepository repository;
+	
+	@Autowired
+	private ProductService productService;
+	
+	private Long countTotalProducts;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+		countTotalProducts = 25L;
+		//blocos pequenos para exercitar mais de um batch por importação
+		ReflectionTestUtils.setField(service, "batchSize", 2);
+	}
+	
+	@Test
+	public void importarShouldInsertValidRowsAndReportInvalidOnesWhenNdjson() throws Exception {
+		String ndjson = 
+				"{\"name\":\"Importado Um\",\"price\":10.0,\"categories\":[{\"id\":1},{\"id\":3}]}\n"
+				+ "{\"name\":\"Abc\",\"price\":10.0}\n"
+				+ "{\"name\":\"Importado Dois\",\"price\":20.0,\"categories\":[{\"id\":2}]}\n"
+				+ "{\"name\":\"Importado Tres\",\"price\":30.0,\"categories\":[{\"id\":999}]}\n"
+				+ "{\"name\":\"Importado Quatro\",\"price\":\"abc\"}\n"
+				+ "{\"name\":\"Importado Cinco\",\"price\":50.0,\"categories\":[{\"id\":2},{\"id\":2}]}\n";
+		
+		ProductImportResultDTO result = service.importar(stream(ndjson));
+		
+		Assertions.assertEquals(6L, result.getReceived());
+		Assertions.assertEquals(3L, result.getImported());
+		Assertions.assertEquals(3L, result.getRejected());
+		Assertions.assertEquals(List.of(2L, 4L, 5L), 
+				result.getErrors().stream().map(e -> e.getRow()).collect(Collectors.toList()));
+		Assertions.assertEquals("name", result.getErrors().get(0).getErrors().get(0).getFieldName());
+		Assertions.assertEquals("categories", result.getErrors().get(1).getErrors().get(0).getFieldName());
+		Assertions.assertEquals("price", result.getErrors().get(2).getErrors().get(0).getFieldName());
+		
+		Assertions.assertEquals(countTotalProducts + 3, repository.count());
+		
+		Product um = findByName("Importado Um");
+		Assertions.assertEquals(List.of(1L, 3L), 
+				um.getCategories().stream().map(Category::getId).sorted().collect(Collectors.toList()));
+		Assertions.assertNotNull(um.getCreatedAt());
+		Assertions.assertEquals(1, findByName("Importado Dois").getCategories().size());
+		Assertions.assertEquals(1, findByName("Importado Cinco").getCategories().size());
+	}
+	
+	@Test
+	public void importarShouldInsertAllRowsWhenJsonArray() throws Exception {
+		String json = "[{\"name\":\"Importado Um\",\"price\":10.0},"
+				+ "{\"name\":\"Importado Dois\",\"price\":20.0},"
+				+ "{\"name\":\"Importado Tres\",\"price\":30.0}]";
+		
+		ProductImportResultDTO result = service.importar(stream(json));
+		
+		Assertions.assertEquals(3L, result.getImported());
+		Assertions.assertEquals(0L, result.getRejected());
+		Assertions.assertEquals(countTotalProducts + 3, repository.count());
+	}
+	
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public void importarShouldRejectOnlyFailingRowsWhenDatabaseRejectsChunk() throws Exception {
+		//imgUrl não é validada no DTO mas excede a coluna: só o banco recusa
+		String ndjson = 
+				"{\"name\":\"Importado Um\",\"price\":10.0}\n"
+				+ "{\"name\":\"Importado Dois\",\"price\":20.0,\"imgUrl\":\"" + "x".repeat(300) + "\"}\n"
+				+ "{\"name\":\"Importado Tres\",\"price\":30.0}\n";
+		
+		try {
+			ProductImportResultDTO result = service.importar(stream(ndjson));
+			
+			Assertions.assertEquals(2L, result.getImported());
+			Assertions.assertEquals(1L, result.getRejected());
+			Assertions.assertEquals(2L, result.getErrors().get(0).getRow());
+			Assertions.assertEquals("database", result.getErrors().get(0).getErrors().get(0).getFieldName());
+			Assertions.assertEquals(countTotalProducts + 2, repository.count());
+		}
+		finally {
+			//sem a transação do teste não há rollback: remove o que foi gravado
+			repository.findAll().stream()
+				.filter(p -> p.getName().startsWith("Importado"))
+				.forEach(p -> productService.delete(p.getId()));
+		}
+	}
+	
+	private Product findByName(String name) {
+		return repository.findAll().stream()
+				.filter(p -> p.getName().equals(name))
+				.findFirst().orElseThrow();
+	}
+	
+	private static ByteArrayInputStream stream(String s) {
+		return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -1,5 +1,11 @@
 package com.devsuperior.dscatalog.services;
 
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.validation.ConstraintViolationException;
+
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -7,12 +13,24 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.devsuperior.dscatalog.components.ProductDetailCache;
+import com.devsuperior.dscatalog.components.Versioned;
+import com.devsuperior.dscatalog.dto.CategoryDTO;
+import com.devsuperior.dscatalog.dto.CursorPageDTO;
 import com.devsuperior.dscatalog.dto.ProductDTO;
 import com.devsuperior.dscatalog.repositories.ProductRepository;
+import com.devsuperior.dscatalog.services.exceptions.InvalidCursorException;
+import com.devsuperior.dscatalog.services.exceptions.InvalidRequestException;
+import com.devsuperior.dscatalog.services.exceptions.PreconditionFailedException;
 import com.devsuperior.dscatalog.services.exceptions.ResourceNotFoundException;
+import com.devsuperior.dscatalog.services.filter.CategoryFilter;
+import com.devsuperior.dscatalog.services.filter.ProductFilter;
+import com.devsuperior.dscatalog.tests.TestFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 @SpringBootTest //Aqui por ser um teste de integração, preciso do contexto da aplicação
 @Transactional //Faz com que dê rollback após cada método de teste
@@ -24,6 +42,15 @@ public class ProductServiceIntegrationTests {
 	@Autowired
 	private ProductRepository repository;
 	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Autowired
+	private CategoryService categoryService;
+	
+	@Autowired
+	private ProductDetailCache productCache;
+	
 	private Long existingId;
 	private Long nonExistingId;
 	private Long countTotalProducts;
@@ -51,6 +78,78 @@ public class ProductServiceIntegrationTests {
 		});
 	}
 	
+	@Test
+	public void atualizarShouldIncrementVersionWhenIfMatchIsCurrent() {
+		Integer version = repository.findById(existingId).get().getVersion();
+		String etag = Versioned.etagOf(repository.findById(existingId).get());
+		
+		Versioned<ProductDTO> result = service.atualizar(existingId, TestFactory.createProductDTO(), etag);
+		
+		Assertions.assertTrue(result.getETag().startsWith("\"" + existingId + "-v" + (version + 1) + "-"));
+		Assertions.assertEquals(Versioned.etagOf(repository.findById(existingId).get()), result.getETag());
+	}
+	
+	@Test
+	public void findVersionedByIdShouldChangeETagWhenEmbeddedCategoryIsRenamed() {
+		productCache.invalidate(existingId);
+		String before = service.findVersionedById(existingId).getETag();
+		
+		categoryService.atualizar(2L, new CategoryDTO(2L, "Eletrônicos e Games"));
+		//o ouvinte do cache só roda após o commit, que não acontece no teste
+		productCache.invalidate(existingId);
+		Versioned<ProductDTO> after = service.findVersionedById(existingId);
+		
+		Assertions.assertNotEquals(before, after.getETag());
+		Assertions.assertEquals("Eletrônicos e Games", after.getValue().getCategories().get(0).getName());
+	}
+	
+	@Test
+	public void atualizarShouldThrowPreconditionFailedExceptionWhenIfMatchIsStale() {
+		String staleETag = Versioned.etagOf(existingId, -1);
+		
+		Assertions.assertThrows(PreconditionFailedException.class, () -> {
+			service.atualizar(existingId, TestFactory.createProductDTO(), staleETag);
+		});
+	}
+	
+	@Test
+	public void patchShouldChangeOnlySuppliedFields() throws Exception {
+		ProductDTO before = service.findById(existingId);
+		
+		ProductDTO result = service.patch(existingId, objectMapper.readTree("{\"price\": 123.0}"), null).getValue();
+		
+		Assertions.assertEquals(123.0, result.getPrice());
+		Assertions.assertEquals(before.getName(), result.getName());
+		Assertions.assertEquals(before.getDescription(), result.getDescription());
+		Assertions.assertEquals(Set.of(2L), categoryIdsOf(existingId));
+	}
+	
+	@Test
+	public void patchShouldReplaceCategoriesWhenSupplied() throws Exception {
+		service.patch(existingId, objectMapper.readTree("{\"categories\": [{\"id\": 1}, {\"id\": 3}]}"), null);
+		
+		Assertions.assertEquals(Set.of(1L, 3L), categoryIdsOf(existingId));
+	}
+	
+	@Test
+	public void patchShouldThrowConstraintViolationExceptionWhenResultIsInvalid() {
+		Assertions.assertThrows(ConstraintViolationException.class, () -> {
+			service.patch(existingId, objectMapper.readTree("{\"price\": -1}"), null);
+		});
+	}
+	
+	@Test
+	public void patchShouldThrowInvalidRequestExceptionWhenFieldIsNotPatchable() {
+		Assertions.assertThrows(InvalidRequestException.class, () -> {
+			service.patch(existingId, objectMapper.readTree("{\"id\": 5}"), null);
+		});
+	}
+	
+	private Set<Long> categoryIdsOf(Long productId) {
+		return repository.findById(productId).get().getCategories().stream()
+				.map(cat -> cat.getId()).collect(Collectors.toSet());
+	}
+	
 	@Test
 	public void findAllPagedShouldReturnPageWhenPage0Size10() {
 		
@@ -86,4 +185,137 @@ public class ProductServiceIntegrationTests {
 		Assertions.assertEquals("PC Gamer", result.getContent().get(1).getName());
 		Assertions.assertEquals("PC Gamer Alfa", result.getContent().get(2).getName());
 	}
+	
+	@Test
+	public void findAllPagedWithCategoriesShouldReturnCategoriesOfEveryProduct() {
+		
+		PageRequest pageRequest = PageRequest.of(0, 12, Sort.by("id"));
+		
+		Page<ProductDTO> result = service.findAllPagedWithCategories(pageRequest);
+		
+		Assertions.assertEquals(12, result.getNumberOfElements());
+		Assertions.assertEquals(countTotalProducts, result.getTotalElements());
+		Assertions.assertEquals(1, result.getContent().get(0).getCategories().size());
+		Assertions.assertEquals(2, result.getContent().get(1).getCategories().size());
+		result.forEach(dto -> Assertions.assertFalse(dto.getCategories().isEmpty()));
+	}
+	
+	@Test
+	public void findAllSlicedShouldReportNextPageWithoutTotal() {
+		
+		Slice<ProductDTO> first = service.findAllSliced(PageRequest.of(0, 10), false);
+		Slice<ProductDTO> last = service.findAllSliced(PageRequest.of(2, 10), false);
+		
+		Assertions.assertEquals(10, first.getNumberOfElements());
+		Assertions.assertTrue(first.hasNext());
+		Assertions.assertEquals(countTotalProducts - 20, last.getNumberOfElements());
+		Assertions.assertFalse(last.hasNext());
+	}
+	
+	@Test
+	public void findAllByCursorShouldWalkWholeCatalogInNameOrder() {
+		
+		CursorPageDTO<ProductDTO> first = service.findAllByCursor(null, 10, false);
+		
+		Assertions.assertEquals(10, first.getContent().size());
+		Assertions.assertEquals("Macbook Pro", first.getContent().get(0).getName());
+		Assertions.assertNotNull(first.getNextCursor());
+		
+		long total = first.getContent().size();
+		String cursor = first.getNextCursor();
+		while(cursor != null) {
+			CursorPageDTO<ProductDTO> page = service.findAllByCursor(cursor, 10, false);
+			total += page.getContent().size();
+			cursor = page.getNextCursor();
+		}
+		
+		Assertions.assertEquals(countTotalProducts, total);
+	}
+	
+	@Test
+	public void findAllByCursorShouldThrowInvalidCursorExceptionWhenCursorIsMalformed() {
+		
+		Assertions.assertThrows(InvalidCursorException.class, () -> {
+			service.findAllByCursor("%%%", 10, false);
+		});
+	}
+	
+	@Test
+	public void findAllPagedByCategoriesShouldReturnProductsInAnyCategoryWhenMatchAny() {
+		
+		CategoryFilter filter = CategoryFilter.of(List.of(1L, 3L), "any");
+		
+		Page<ProductDTO> result = service.findAllPagedByCategories(filter, PageRequest.of(0, 10), true);
+		
+		//todos menos os dois produtos que estão apenas em Eletrônicos (2)
+		Assertions.assertEquals(countTotalProducts - 2, result.getTotalElements());
+		Assertions.assertEquals(10, result.getNumberOfElements());
+		Assertions.assertTrue(result.getContent().stream()
+				.allMatch(p -> p.getCategories().stream().anyMatch(c -> c.getId() == 1L || c.getId() == 3L)));
+	}
+	
+	@Test
+	public void findAllPagedByCategoriesShouldReturnOnlyProductsInEveryCategoryWhenMatchAll() {
+		
+		CategoryFilter filter = CategoryFilter.of(List.of(1L, 3L), "all");
+		
+		Page<ProductDTO> result = service.findAllPagedByCategories(filter, PageRequest.of(0, 10), false);
+		
+		Assertions.assertEquals(1L, result.getTotalElements());
+		Assertions.assertEquals(2L, result.getContent().get(0).getId());
+	}
+	
+	@Test
+	public void findAllByCursorShouldWalkOnlyFilteredProductsWhenCategoryFilter() {
+		
+		CategoryFilter filter = CategoryFilter.of(List.of(3L), "any");
+		
+		long total = 0;
+		String cursor = null;
+		do {
+			CursorPageDTO<ProductDTO> page = service.findAllByCursor(cursor, 10, false, filter);
+			total += page.getContent().size();
+			cursor = page.getNextCursor();
+		} while(cursor != null);
+		
+		Assertions.assertEquals(countTotalProducts - 2, total);
+	}
+	
+	@Test
+	public void filterShouldMatchSameProductsAsDatabaseFiltering() {
+		
+		ProductFilter filter = ProductFilter.of(CategoryFilter.of(List.of(3L), "any"), 1000.0, 2000.0, null, null);
+		
+		List<Long> expected = repository.findAll(Sort.by("id")).stream()
+				.filter(p -> p.getCategories().stream().anyMatch(c -> c.getId() == 3L))
+				.filter(p -> p.getPrice() >= 1000.0 && p.getPrice() <= 2000.0)
+				.map(p -> p.getId())
+				.collect(Collectors.toList());
+		
+		Page<ProductDTO> result = service.filter(filter, PageRequest.of(0, 100), true);
+		
+		Assertions.assertFalse(expected.isEmpty());
+		Assertions.assertEquals(expected.size(), result.getTotalElements());
+		Assertions.assertEquals(expected, 
+				result.getContent().stream().map(ProductDTO::getId).collect(Collectors.toList()));
+	}
+	
+	@Test
+	public void searchShouldReturnProductsRankedByRelevance() {
+		
+		Page<ProductDTO> result = service.search("gamer", PageRequest.of(0, 5));
+		
+		Assertions.assertEquals(5, result.getNumberOfElements());
+		Assertions.assertTrue(result.getTotalElements() > 5);
+		result.forEach(dto -> Assertions.assertTrue(dto.getName().contains("Gamer")));
+	}
+	
+	@Test
+	public void searchShouldReturnEmptyPageWhenNoTermMatches() {
+		
+		Page<ProductDTO> result = service.search("inexistente", PageRequest.of(0, 5));
+		
+		Assertions.assertTrue(result.isEmpty());
+		Assertions.assertEquals(0, result.getTotalElements());
+	}
 }
@@ -13,7 +13,9 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.internal.verification.NoMoreInteractions;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
@@ -22,15 +24,19 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import com.devsuperior.dscatalog.components.ProductDetailCache;
 import com.devsuperior.dscatalog.dto.ProductDTO;
 import com.devsuperior.dscatalog.entities.Category;
 import com.devsuperior.dscatalog.entities.Product;
 import com.devsuperior.dscatalog.repositories.CategoryRepository;
 import com.devsuperior.dscatalog.repositories.ProductRepository;
+import com.devsuperior.dscatalog.services.events.ProductChangedEvent;
 import com.devsuperior.dscatalog.services.exceptions.DatabaseException;
 import com.devsuperior.dscatalog.services.exceptions.ResourceNotFoundException;
 import com.devsuperior.dscatalog.tests.TestFactory;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 
 /**
  * @ExtendWith(SpringExtension.class)
@@ -52,6 +58,13 @@ public class ProductServiceTests {
 	@Mock
 	private CategoryRepository categoryRepository;
 	
+	@Mock
+	private ApplicationEventPublisher publisher;
+	
+	/** Cache real (e vazio) para que o findById chegue ao repository mockado */
+	@Spy
+	private ProductDetailCache productCache = new ProductDetailCache(100, 60, new SimpleMeterRegistry());
+	
 	/** Mockito do Srpring
 	 * Para teste de unidade que precisa do contexto para mockar
 	 * algum bean do sistema */
@@ -105,6 +118,23 @@ public class ProductServiceTests {
 		Assertions.assertNotNull(productDTO);
 	}
 	
+	@Test
+	public void findByIdShouldHitRepositoryOnlyOnceWhenCalledTwice() {
+		service.findById(existingId);
+		service.findById(existingId);
+		
+		Mockito.verify(repository, Mockito.times(1)).findById(existingId);
+	}
+	
+	@Test
+	public void findByIdShouldReloadAfterProductChanged() {
+		service.findById(existingId);
+		productCache.onProductChanged(ProductChangedEvent.deleted(existingId));
+		service.findById(existingId);
+		
+		Mockito.verify(repository, Mockito.times(2)).findById(existingId);
+	}
+	
 	@Test
 	public void findByIdShouldThrowEntityNotFoundExceptionWhenIdDoesNotExists() {
 		Assertions.assertThrows(EntityNotFoundException.class, () -> {